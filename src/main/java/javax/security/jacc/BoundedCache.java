@@ -0,0 +1,168 @@
+package javax.security.jacc;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * A concurrent cache holding at most a fixed number of entries, evicted with the CLOCK (second chance) policy: every
+ * lookup marks the entry it finds as referenced, and when the cache is over its bound, the entries are scanned in
+ * insertion order, evicting the first entry that has not been referenced since the last scan and clearing the mark of
+ * the others. Entries that keep being looked up therefore stay cached, while a burst of entries that are never looked
+ * up again, such as the ones built from arbitrary request input, only displaces other cold entries.
+ * </p>
+ *
+ * <p>
+ * Lookups do not block and only write to the entry they find when it was not already marked.
+ * </p>
+ *
+ * @param <K>
+ *           the type of the keys.
+ * @param <V>
+ *           the type of the cached values.
+ */
+final class BoundedCache<K, V>
+{
+   private final int maxSize;
+
+   private final ConcurrentMap<K, Entry<K, V>> entries = new ConcurrentHashMap<K, Entry<K, V>>();
+
+   /** the cached entries in insertion order, with the entries given a second chance moved to the tail */
+   private final Queue<Entry<K, V>> clock = new ConcurrentLinkedQueue<Entry<K, V>>();
+
+   private final AtomicInteger size = new AtomicInteger();
+
+   /**
+    * <p>
+    * Creates a new {@code BoundedCache}.
+    * </p>
+    *
+    * @param maxSize
+    *           - the maximum number of cached entries.
+    */
+   BoundedCache(int maxSize)
+   {
+      if (maxSize < 0)
+         throw new IllegalArgumentException("The maximum size may not be negative");
+      this.maxSize = maxSize;
+   }
+
+   /**
+    * <p>
+    * Obtains the value cached for a key, marking its entry as referenced.
+    * </p>
+    *
+    * @param key
+    *           - the key.
+    * @return the cached value, or {@code null} if no value is cached for the key.
+    */
+   V get(K key)
+   {
+      Entry<K, V> entry = this.entries.get(key);
+      if (entry == null)
+         return null;
+      if (entry.referenced == false)
+         entry.referenced = true;
+      return entry.value;
+   }
+
+   /**
+    * <p>
+    * Caches a value for a key, unless a value is already cached for it, evicting a cold entry if the cache is over its
+    * bound.
+    * </p>
+    *
+    * @param key
+    *           - the key.
+    * @param value
+    *           - the value to cache.
+    * @return the value cached for the key: the existing value if there was one, and the specified value otherwise.
+    */
+   V putIfAbsent(K key, V value)
+   {
+      Entry<K, V> entry = new Entry<K, V>(key, value);
+      Entry<K, V> existing = this.entries.putIfAbsent(key, entry);
+      if (existing != null)
+      {
+         existing.referenced = true;
+         return existing.value;
+      }
+      this.clock.add(entry);
+      if (this.size.incrementAndGet() > this.maxSize)
+         evict();
+      return value;
+   }
+
+   /**
+    * <p>
+    * Removes the value cached for a key. This method scans the entries, and is meant for infrequent use.
+    * </p>
+    *
+    * @param key
+    *           - the key.
+    * @return the removed value, or {@code null} if no value was cached for the key.
+    */
+   V remove(K key)
+   {
+      Entry<K, V> entry = this.entries.remove(key);
+      if (entry == null)
+         return null;
+      this.size.decrementAndGet();
+      this.clock.remove(entry);
+      return entry.value;
+   }
+
+   /**
+    * <p>
+    * Obtains the number of cached entries.
+    * </p>
+    *
+    * @return the number of entries.
+    */
+   int size()
+   {
+      return this.size.get();
+   }
+
+   private void evict()
+   {
+      // two passes over the entries clear every mark, unless lookups keep marking them meanwhile.
+      int budget = 2 * (this.maxSize + 1);
+      while (this.size.get() > this.maxSize && budget-- > 0)
+      {
+         Entry<K, V> entry = this.clock.poll();
+         if (entry == null)
+            return;
+         if (entry.referenced)
+         {
+            entry.referenced = false;
+            this.clock.add(entry);
+         }
+         else if (this.entries.remove(entry.key, entry))
+            this.size.decrementAndGet();
+      }
+   }
+
+   /**
+    * <p>
+    * A cached value and its reference mark.
+    * </p>
+    */
+   private static final class Entry<K, V>
+   {
+      private final K key;
+
+      private final V value;
+
+      private volatile boolean referenced;
+
+      Entry(K key, V value)
+      {
+         this.key = key;
+         this.value = value;
+      }
+   }
+}
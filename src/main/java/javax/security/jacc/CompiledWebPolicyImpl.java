@@ -0,0 +1,290 @@
+package javax.security.jacc;
+
+import java.security.Permission;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.jboss.jacc.CompiledWebPolicy;
+import org.jboss.jacc.RoleRegistry;
+
+/**
+ * <p>
+ * The {@code CompiledWebPolicy} of this package, which indexes the web permissions with the {@code URLPatternIndex}
+ * used by the permissions themselves and decides requests with their {@code impliesRequest} methods.
+ * </p>
+ *
+ * @see org.jboss.jacc.WebPolicyCompiler#compile()
+ */
+final class CompiledWebPolicyImpl implements CompiledWebPolicy
+{
+   private static final int EXCLUDED = 0;
+
+   private static final int UNCHECKED = 1;
+
+   private static final int ROLE = 2;
+
+   private final URLPatternIndex<Entry> resourceIndex = new URLPatternIndex<Entry>();
+
+   private final URLPatternIndex<Entry> userDataIndex = new URLPatternIndex<Entry>();
+
+   private final RoleRegistry roleRegistry;
+
+   /**
+    * <p>
+    * Creates a {@code CompiledWebPolicyImpl} from the web permissions of a policy context.
+    * </p>
+    *
+    * @param excluded
+    *           - the excluded web permissions.
+    * @param unchecked
+    *           - the unchecked web permissions.
+    * @param roles
+    *           - the web permissions granted to each role, keyed by role name.
+    * @param roleRegistry
+    *           - the registry assigning the role identifiers.
+    */
+   CompiledWebPolicyImpl(List<Permission> excluded, List<Permission> unchecked, Map<String, List<Permission>> roles,
+         RoleRegistry roleRegistry)
+   {
+      this.roleRegistry = roleRegistry;
+      for (Permission permission : excluded)
+         add(EXCLUDED, null, permission);
+      for (Permission permission : unchecked)
+         add(UNCHECKED, null, permission);
+      for (Map.Entry<String, List<Permission>> role : roles.entrySet())
+      {
+         for (Permission permission : role.getValue())
+            add(ROLE, role.getKey(), permission);
+      }
+   }
+
+   @Override
+   public RoleRegistry getRoleRegistry()
+   {
+      return this.roleRegistry;
+   }
+
+   @Override
+   public Decision decideResource(HttpServletRequest request)
+   {
+      return decideResource(WebResourcePermission.requestURI(request), request.getMethod());
+   }
+
+   @Override
+   public Decision decideResource(final String path, String method)
+   {
+      final HTTPMethodSet methods = HTTPMethodSet.valueOfMethod(method);
+      DecisionVisitor visitor = new DecisionVisitor()
+      {
+         @Override
+         boolean implies(Entry entry)
+         {
+            return ((WebResourcePermission) entry.permission).impliesRequest(path, methods);
+         }
+      };
+      return visitor.decide(this.resourceIndex, path);
+   }
+
+   @Override
+   public Decision decideUserData(HttpServletRequest request)
+   {
+      return decideUserData(WebResourcePermission.requestURI(request), request.getMethod(),
+            request.isSecure() ? "CONFIDENTIAL" : null);
+   }
+
+   @Override
+   public Decision decideUserData(final String path, String method, final String transportType)
+   {
+      final HTTPMethodSet methods = HTTPMethodSet.valueOfMethod(method);
+      DecisionVisitor visitor = new DecisionVisitor()
+      {
+         @Override
+         boolean implies(Entry entry)
+         {
+            return ((WebUserDataPermission) entry.permission).impliesRequest(path, methods, transportType);
+         }
+      };
+      return visitor.decide(this.userDataIndex, path);
+   }
+
+   private void add(int kind, String role, Permission permission)
+   {
+      int roleId = role == null ? -1 : this.roleRegistry.register(role);
+      if (permission instanceof WebResourcePermission)
+      {
+         WebResourcePermission perm = (WebResourcePermission) permission;
+         this.resourceIndex.add(perm.getURLPatternSpec().urlPattern, new Entry(kind, role, roleId, perm));
+      }
+      else if (permission instanceof WebUserDataPermission)
+      {
+         WebUserDataPermission perm = (WebUserDataPermission) permission;
+         this.userDataIndex.add(perm.getURLPatternSpec().urlPattern, new Entry(kind, role, roleId, perm));
+      }
+   }
+
+   /**
+    * <p>
+    * The {@code Decision} for a request, as accumulated by a {@code DecisionVisitor}.
+    * </p>
+    */
+   private static final class Outcome implements Decision
+   {
+      private static final Outcome EXCLUDED_DECISION = new Outcome(CompiledWebPolicyImpl.EXCLUDED,
+            Collections.<String> emptySet(), new BitSet());
+
+      private static final Outcome UNCHECKED_DECISION = new Outcome(CompiledWebPolicyImpl.UNCHECKED,
+            Collections.<String> emptySet(), new BitSet());
+
+      private static final Outcome NO_ROLE_DECISION = new Outcome(ROLE, Collections.<String> emptySet(),
+            new BitSet());
+
+      private final int kind;
+
+      private final Set<String> roles;
+
+      private final BitSet roleIds;
+
+      private Outcome(int kind, Set<String> roles, BitSet roleIds)
+      {
+         this.kind = kind;
+         this.roles = roles;
+         this.roleIds = roleIds;
+      }
+
+      @Override
+      public boolean isExcluded()
+      {
+         return this.kind == CompiledWebPolicyImpl.EXCLUDED;
+      }
+
+      @Override
+      public boolean isUnchecked()
+      {
+         return this.kind == CompiledWebPolicyImpl.UNCHECKED;
+      }
+
+      @Override
+      public Set<String> getRoles()
+      {
+         return this.roles;
+      }
+
+      @Override
+      public BitSet getRoleIds()
+      {
+         return (BitSet) this.roleIds.clone();
+      }
+
+      @Override
+      public boolean isGranted(BitSet callerRoleIds)
+      {
+         if (this.kind != ROLE)
+            return this.kind == CompiledWebPolicyImpl.UNCHECKED;
+         return this.roleIds.intersects(callerRoleIds);
+      }
+
+      /*
+       * (non-Javadoc)
+       *
+       * @see java.lang.Object#toString()
+       */
+      @Override
+      public String toString()
+      {
+         if (isExcluded())
+            return "EXCLUDED";
+         if (isUnchecked())
+            return "UNCHECKED";
+         return "ROLES" + this.roles;
+      }
+   }
+
+   /**
+    * <p>
+    * A permission of the policy context, along with the policy statement it belongs to.
+    * </p>
+    */
+   private static final class Entry
+   {
+      private final int kind;
+
+      private final String role;
+
+      private final int roleId;
+
+      private final Permission permission;
+
+      Entry(int kind, String role, int roleId, Permission permission)
+      {
+         this.kind = kind;
+         this.role = role;
+         this.roleId = roleId;
+         this.permission = permission;
+      }
+   }
+
+   /**
+    * <p>
+    * Accumulates the decision for a request while the entries whose pattern matches its path are visited.
+    * </p>
+    */
+   private abstract static class DecisionVisitor implements URLPatternIndex.Visitor<Entry>
+   {
+      private boolean excluded;
+
+      private boolean unchecked;
+
+      private Set<String> roles;
+
+      private BitSet roleIds;
+
+      public boolean visit(URLPattern pattern, Entry entry)
+      {
+         switch (entry.kind)
+         {
+            case EXCLUDED :
+               this.excluded = implies(entry);
+               // nothing can override an excluded permission, so stop the visit.
+               return this.excluded;
+            case UNCHECKED :
+               if (this.unchecked == false)
+                  this.unchecked = implies(entry);
+               return false;
+            default :
+               // once unchecked, only an excluded permission can change the decision.
+               if (this.unchecked == false && (this.roleIds == null || this.roleIds.get(entry.roleId) == false)
+                     && implies(entry))
+               {
+                  if (this.roles == null)
+                  {
+                     this.roles = new LinkedHashSet<String>();
+                     this.roleIds = new BitSet();
+                  }
+                  this.roles.add(entry.role);
+                  this.roleIds.set(entry.roleId);
+               }
+               return false;
+         }
+      }
+
+      Decision decide(URLPatternIndex<Entry> index, String path)
+      {
+         index.visit(path, this);
+         if (this.excluded)
+            return Outcome.EXCLUDED_DECISION;
+         if (this.unchecked)
+            return Outcome.UNCHECKED_DECISION;
+         if (this.roles == null)
+            return Outcome.NO_ROLE_DECISION;
+         return new Outcome(ROLE, Collections.unmodifiableSet(this.roles), this.roleIds);
+      }
+
+      abstract boolean implies(Entry entry);
+   }
+}
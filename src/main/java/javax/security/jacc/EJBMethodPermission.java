@@ -7,9 +7,11 @@ import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.security.Permission;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.StringTokenizer;
+import java.security.PermissionCollection;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * <p>
@@ -43,11 +45,27 @@ public final class EJBMethodPermission extends Permission implements Serializabl
     */
    private static final ObjectStreamField[] serialPersistentFields = {new ObjectStreamField("actions", String.class)};
 
+   /** the method signatures of the methods of a class, computed on demand */
+   private static final ClassValue<ConcurrentMap<Method, Signature>> methodSignatures =
+         new ClassValue<ConcurrentMap<Method, Signature>>()
+   {
+      @Override
+      protected ConcurrentMap<Method, Signature> computeValue(Class<?> type)
+      {
+         return new ConcurrentHashMap<Method, Signature>();
+      }
+   };
+
    private transient String methodName;
 
    private transient String methodInterface;
 
-   private transient String methodSig;
+   /** the standard interface named by methodInterface, or null if methodInterface is null or not standard */
+   private transient MethodInterface methodInterfaceType;
+
+   private transient Signature methodSig;
+
+   private transient int hashCode;
 
    /**
     * <p>
@@ -151,7 +169,10 @@ public final class EJBMethodPermission extends Permission implements Serializabl
     */
    public EJBMethodPermission(String ejbName, String methodInterface, Method method)
    {
-      this(ejbName, method.getName(), methodInterface, convertParameters(method.getParameterTypes()));
+      super(ejbName);
+      setMethodInterface(methodInterface);
+      this.methodName = method.getName();
+      this.methodSig = methodSignature(method);
    }
 
    /**
@@ -183,22 +204,13 @@ public final class EJBMethodPermission extends Permission implements Serializabl
    public EJBMethodPermission(String ejbName, String methodName, String methodInterface, String[] methodParams)
    {
       super(ejbName);
-      this.methodInterface = methodInterface;
-      this.methodName = methodName;
+      setMethodInterface(methodInterface);
+      // the empty string matches all methods, like the absent method name it parses back to.
+      this.methodName = methodName == null || methodName.length() == 0 ? null : methodName;
       if (methodParams == null)
          methodSig = null;
       else
-      {
-         StringBuffer tmp = new StringBuffer();
-         for (String methodParam : methodParams)
-         {
-            tmp.append(methodParam);
-            tmp.append(',');
-         }
-         if (tmp.length() > 0)
-            tmp.setLength(tmp.length() - 1);
-         methodSig = tmp.toString();
-      }
+         methodSig = Signature.valueOf(joinParameters(methodParams));
    }
 
    /**
@@ -218,44 +230,17 @@ public final class EJBMethodPermission extends Permission implements Serializabl
    @Override
    public boolean equals(Object o)
    {
-      boolean equals = false;
-      if (o == null || !(o instanceof EJBMethodPermission))
+      if (this == o)
+         return true;
+      if (o instanceof EJBMethodPermission == false)
          return false;
       EJBMethodPermission perm = (EJBMethodPermission) o;
-      equals = getName().equals(perm.getName());
-      if (equals == true)
-      {
-         // Check the method names
-         if (methodName != null)
-         {
-            if (perm.methodName == null)
-               return false;
-            if (methodName.equals(perm.methodName) == false)
-               return false;
-         }
-         else if (perm.methodName != null)
-         {
-            return false;
-         }
-
-         // Check the method interfaces
-         equals = methodInterface != perm.methodInterface;
-         if (equals == false && methodInterface != null)
-            equals = methodInterface.equals(perm.methodInterface);
-         if (equals == false)
-            return false;
-
-         // Check the method parameters
-         if (methodSig != null)
-         {
-            equals = perm.methodSig != null && methodSig.equals(perm.methodSig);
-         }
-         else
-         {
-            equals = perm.methodSig == null;
-         }
-      }
-      return equals;
+      // the hash codes cover every component, so most unequal permissions are told apart here.
+      if (hashCode() != perm.hashCode())
+         return false;
+      // standard interfaces compare by their code, and signatures of the same method or spec by identity.
+      return getName().equals(perm.getName()) && Objects.equals(methodName, perm.methodName)
+            && sameMethodInterface(perm) && Objects.equals(methodSig, perm.methodSig);
    }
 
    /**
@@ -276,13 +261,18 @@ public final class EJBMethodPermission extends Permission implements Serializabl
    @Override
    public int hashCode()
    {
-      int hashCode = 0;
-      if (methodName != null)
-         hashCode += methodName.hashCode();
-      if (methodInterface != null)
-         hashCode += methodInterface.hashCode();
-      if (methodSig != null)
-         hashCode += methodSig.hashCode();
+      int hashCode = this.hashCode;
+      if (hashCode == 0)
+      {
+         hashCode = getName().hashCode();
+         if (methodName != null)
+            hashCode = 37 * hashCode + methodName.hashCode();
+         if (methodInterface != null)
+            hashCode = 37 * hashCode + methodInterface.hashCode();
+         if (methodSig != null)
+            hashCode = 37 * hashCode + methodSig.hashCode();
+         this.hashCode = hashCode;
+      }
       return hashCode;
    }
 
@@ -346,7 +336,7 @@ public final class EJBMethodPermission extends Permission implements Serializabl
       if (methodSig != null)
       {
          actions.append(',');
-         actions.append(methodSig);
+         actions.append(methodSig.value);
       }
       String methodSpec = null;
       if (actions.length() > 0)
@@ -408,7 +398,7 @@ public final class EJBMethodPermission extends Permission implements Serializabl
       // Check the method interface
       if (implies == true && methodInterface != null)
       {
-         implies = methodInterface.equals(perm.methodInterface);
+         implies = sameMethodInterface(perm);
       }
       // Check the method signature
       if (implies == true && methodSig != null)
@@ -454,12 +444,115 @@ public final class EJBMethodPermission extends Permission implements Serializabl
       tmp.append('(');
       if (methodSig != null)
       {
-         tmp.append(methodSig);
+         tmp.append(methodSig.value);
       }
       tmp.append(")]");
       return tmp.toString();
    }
 
+   /**
+    * <p>
+    * Returns a new {@code PermissionCollection} for storing {@code EJBMethodPermission} objects. The returned
+    * collection indexes the permissions by EJB name, method name, method interface and method signature, so that
+    * {@code implies} only looks up the permissions that can imply the argument permission.
+    * </p>
+    * 
+    * @return a new {@code PermissionCollection} suitable for storing {@code EJBMethodPermission} objects.
+    */
+   @Override
+   public PermissionCollection newPermissionCollection()
+   {
+      return new EJBMethodPermissionCollection();
+   }
+
+   /**
+    * <p>
+    * Obtains the method name of this permission.
+    * </p>
+    * 
+    * @return the method name, or {@code null} if the permission applies to all method names.
+    */
+   String getMethodName()
+   {
+      return this.methodName;
+   }
+
+   /**
+    * <p>
+    * Obtains the method interface of this permission.
+    * </p>
+    * 
+    * @return the method interface, or {@code null} if the permission applies to all method interfaces.
+    */
+   String getMethodInterface()
+   {
+      return this.methodInterface;
+   }
+
+   /**
+    * <p>
+    * Obtains the comma separated method signature of this permission.
+    * </p>
+    * 
+    * @return the method signature, or {@code null} if the permission applies to all method signatures.
+    */
+   String getMethodSig()
+   {
+      return this.methodSig == null ? null : this.methodSig.value;
+   }
+
+   /**
+    * <p>
+    * Checks if this permission and the specified permission have the same method interface, comparing the codes of
+    * the standard interfaces rather than their names.
+    * </p>
+    * 
+    * @param perm
+    *           - the permission to compare with.
+    * @return {@code true} if both permissions have the same method interface, or none; {@code false} otherwise.
+    */
+   private boolean sameMethodInterface(EJBMethodPermission perm)
+   {
+      if (this.methodInterfaceType != null)
+         return this.methodInterfaceType == perm.methodInterfaceType;
+      return Objects.equals(this.methodInterface, perm.methodInterface);
+   }
+
+   private void setMethodInterface(String methodInterface)
+   {
+      // the empty string matches all interfaces, like the absent interface it parses back to.
+      if (methodInterface != null && methodInterface.length() == 0)
+         methodInterface = null;
+      this.methodInterfaceType = MethodInterface.forValue(methodInterface);
+      this.methodInterface = this.methodInterfaceType == null ? methodInterface : this.methodInterfaceType.value;
+   }
+
+   /**
+    * <p>
+    * Obtains the signature of the specified method. Signatures are computed once per {@code Method} and cached in a
+    * table attached to the declaring class, so that building a permission for each invocation of a method does not
+    * convert its parameter types again. The table goes away with the declaring class.
+    * </p>
+    * 
+    * @param method
+    *           - the method whose signature is to be obtained.
+    * @return the signature of the method.
+    */
+   private static Signature methodSignature(Method method)
+   {
+      ConcurrentMap<Method, Signature> signatures = methodSignatures.get(method.getDeclaringClass());
+      Signature signature = signatures.get(method);
+      if (signature == null)
+      {
+         String[] types = convertParameters(method.getParameterTypes());
+         signature = new Signature(joinParameters(types), types);
+         Signature existing = signatures.putIfAbsent(method, signature);
+         if (existing != null)
+            signature = existing;
+      }
+      return signature;
+   }
+
    /**
     * <p>
     * Converts the specified method parameter classes to {@code String}.
@@ -471,32 +564,58 @@ public final class EJBMethodPermission extends Permission implements Serializabl
     */
    private static String[] convertParameters(Class<?>[] params)
    {
-      List<String> tmp = new ArrayList<String>();
-      for (Class<?> c : params)
+      String[] sig = new String[params.length];
+      for (int i = 0; i < params.length; i++)
       {
+         Class<?> c = params[i];
          if (c.isArray())
          {
-            StringBuffer sb = new StringBuffer();
-            Class<?> subType = c.getComponentType();
-            sb.append(subType.getName());
             // Convert to type[][]...[]
-            while (subType != null)
+            StringBuilder sb = new StringBuilder();
+            int dimensions = 0;
+            while (c.isArray())
             {
-               sb.append("[]");
-               subType = subType.getComponentType();
+               dimensions++;
+               c = c.getComponentType();
             }
-            tmp.add(sb.toString());
+            sb.append(c.getName());
+            while (dimensions-- > 0)
+               sb.append("[]");
+            sig[i] = sb.toString();
          }
          else
          {
-            tmp.add(c.getName());
+            sig[i] = c.getName();
          }
       }
-      String[] sig = new String[tmp.size()];
-      tmp.toArray(sig);
       return sig;
    }
 
+   /**
+    * <p>
+    * Joins the specified parameter type names into a comma separated method signature.
+    * </p>
+    * 
+    * @param params
+    *           - the parameter type names.
+    * @return the method signature.
+    */
+   private static String joinParameters(String[] params)
+   {
+      if (params.length == 0)
+         return "";
+      if (params.length == 1)
+         return params[0];
+      StringBuilder tmp = new StringBuilder();
+      for (int i = 0; i < params.length; i++)
+      {
+         if (i > 0)
+            tmp.append(',');
+         tmp.append(params[i]);
+      }
+      return tmp.toString();
+   }
+
    /**
     * <p>
     * Parse the methodSpec string into methodName, methodInterface and methodSig.
@@ -528,45 +647,11 @@ public final class EJBMethodPermission extends Permission implements Serializabl
     */
    private void parseMethodSpec(String methodSpec)
    {
-      methodName = null;
-      methodInterface = null;
-      methodSig = null;
-
-      if (methodSpec != null)
-      {
-         StringTokenizer tokenizer = new StringTokenizer(methodSpec, ",", true);
-         // Method name
-         if (tokenizer.hasMoreTokens())
-         {
-            methodName = tokenizer.nextToken();
-            if (methodName.equals(","))
-               methodName = null;
-         }
-         // Method interface
-         if (tokenizer.hasMoreTokens())
-         {
-            methodInterface = tokenizer.nextToken();
-            if (methodName != null && methodInterface.equals(","))
-               methodInterface = tokenizer.nextToken();
-            if (methodInterface.equals(","))
-            {
-               methodInterface = null;
-               methodSig = "";
-            }
-         }
-         // Method args
-         if (tokenizer.hasMoreTokens())
-         {
-            if (methodInterface != null)
-               tokenizer.nextToken();
-            StringBuffer tmp = new StringBuffer();
-            while (tokenizer.hasMoreTokens())
-            {
-               tmp.append(tokenizer.nextToken());
-            }
-            methodSig = tmp.toString();
-         }
-      }
+      MethodSpec spec = methodSpec == null ? MethodSpec.ALL_METHODS : MethodSpec.valueOf(methodSpec);
+      methodName = spec.methodName;
+      methodInterface = spec.methodInterface;
+      methodInterfaceType = spec.methodInterfaceType;
+      methodSig = spec.methodSig;
    }
 
    private void readObject(ObjectInputStream ois) throws ClassNotFoundException, IOException
@@ -582,4 +667,213 @@ public final class EJBMethodPermission extends Permission implements Serializabl
       fields.put("actions", this.getActions());
       oos.writeFields();
    }
+
+   /**
+    * <p>
+    * The components of a parsed methodSpec. Parsed specifications are immutable and cached, so that permissions
+    * constructed or deserialized with the same actions share one parse.
+    * </p>
+    */
+   private static final class MethodSpec
+   {
+      /** The maximum number of parsed specifications kept by the cache */
+      private static final int MAX_CACHED_SPECS = 1024;
+
+      /** The cache of parsed specifications, keyed by their String representation */
+      private static final BoundedCache<String, MethodSpec> cache = new BoundedCache<String, MethodSpec>(
+            MAX_CACHED_SPECS);
+
+      /** The specification that applies to all methods */
+      private static final MethodSpec ALL_METHODS = new MethodSpec(null, null, null);
+
+      private final String methodName;
+
+      private final String methodInterface;
+
+      private final MethodInterface methodInterfaceType;
+
+      private final Signature methodSig;
+
+      private MethodSpec(String methodName, String methodInterface, String methodSig)
+      {
+         this.methodName = methodName;
+         this.methodInterfaceType = MethodInterface.forValue(methodInterface);
+         this.methodInterface = this.methodInterfaceType == null ? methodInterface : this.methodInterfaceType.value;
+         this.methodSig = methodSig == null ? null : Signature.valueOf(methodSig);
+      }
+
+      /**
+       * <p>
+       * Obtains the parsed form of the specified methodSpec. The cache is bounded and evicts the specifications that
+       * are not parsed again, so a flow of distinct specifications does not displace the frequent ones.
+       * </p>
+       * 
+       * @param methodSpec
+       *           - the methodSpec to be parsed. The value of this parameter must not be null.
+       * @return the parsed {@code MethodSpec}.
+       */
+      static MethodSpec valueOf(String methodSpec)
+      {
+         MethodSpec spec = cache.get(methodSpec);
+         if (spec == null)
+            spec = cache.putIfAbsent(methodSpec, parse(methodSpec));
+         return spec;
+      }
+
+      /**
+       * <p>
+       * Splits a methodSpec in a single pass over its comma positions. The method name extends to the first comma and
+       * the method interface to the second one; everything after the second comma is the signature. An empty method
+       * name or method interface is not specified (null), while a signature present but empty denotes the methods
+       * without parameters.
+       * </p>
+       */
+      private static MethodSpec parse(String methodSpec)
+      {
+         if (methodSpec.length() == 0)
+            return ALL_METHODS;
+         int comma = methodSpec.indexOf(',');
+         if (comma < 0)
+            return new MethodSpec(methodSpec, null, null);
+         String methodName = comma == 0 ? null : methodSpec.substring(0, comma);
+
+         int start = comma + 1;
+         if (start == methodSpec.length())
+            return new MethodSpec(methodName, null, null);
+         comma = methodSpec.indexOf(',', start);
+         if (comma < 0)
+            return new MethodSpec(methodName, methodSpec.substring(start), null);
+         String methodInterface = comma == start ? null : methodSpec.substring(start, comma);
+         return new MethodSpec(methodName, methodInterface, methodSpec.substring(comma + 1));
+      }
+   }
+
+   /**
+    * <p>
+    * The method-intf values defined by the EJB specification. A permission naming one of these interfaces holds its
+    * code, so that interfaces are compared by identity rather than by name.
+    * </p>
+    */
+   private enum MethodInterface
+   {
+      HOME("Home"), LOCAL_HOME("LocalHome"), REMOTE("Remote"), LOCAL("Local"), SERVICE_ENDPOINT("ServiceEndpoint"),
+      TIMER("Timer"), MESSAGE_ENDPOINT("MessageEndpoint"), LIFECYCLE_CALLBACK("LifecycleCallback");
+
+      private final String value;
+
+      private MethodInterface(String value)
+      {
+         this.value = value;
+      }
+
+      /**
+       * <p>
+       * Obtains the standard interface with the specified name.
+       * </p>
+       * 
+       * @param value
+       *           - the name of the interface (may be null).
+       * @return the standard interface, or {@code null} if the name is null or is not a standard method-intf value.
+       */
+      static MethodInterface forValue(String value)
+      {
+         if (value == null)
+            return null;
+         switch (value)
+         {
+            case "Home" :
+               return HOME;
+            case "LocalHome" :
+               return LOCAL_HOME;
+            case "Remote" :
+               return REMOTE;
+            case "Local" :
+               return LOCAL;
+            case "ServiceEndpoint" :
+               return SERVICE_ENDPOINT;
+            case "Timer" :
+               return TIMER;
+            case "MessageEndpoint" :
+               return MESSAGE_ENDPOINT;
+            case "LifecycleCallback" :
+               return LIFECYCLE_CALLBACK;
+            default :
+               return null;
+         }
+      }
+   }
+
+   /**
+    * <p>
+    * A method signature, held both as the comma separated list of parameter type names used in the actions and as the
+    * array of those names. The hash code is computed once. The signatures of the same method, or of the same cached
+    * methodSpec, are the same instance; signatures built from {@code Method} objects share the type names of the
+    * parameter classes, so comparing their arrays mostly amounts to identity checks.
+    * </p>
+    */
+   private static final class Signature
+   {
+      private static final String[] NO_TYPES = new String[0];
+
+      /** the comma separated parameter type names */
+      private final String value;
+
+      /** the parameter type names, split at the commas of the value */
+      private final String[] types;
+
+      private final int hashCode;
+
+      Signature(String value, String[] types)
+      {
+         this.value = value;
+         this.types = types;
+         this.hashCode = value.hashCode();
+      }
+
+      /**
+       * <p>
+       * Creates the signature with the specified comma separated parameter type names. The empty string denotes the
+       * methods without parameters.
+       * </p>
+       * 
+       * @param value
+       *           - the comma separated parameter type names.
+       * @return the new {@code Signature}.
+       */
+      static Signature valueOf(String value)
+      {
+         if (value.length() == 0)
+            return new Signature(value, NO_TYPES);
+         int count = 1;
+         for (int index = value.indexOf(','); index >= 0; index = value.indexOf(',', index + 1))
+            count++;
+         String[] types = new String[count];
+         int start = 0;
+         for (int i = 0; i < count - 1; i++)
+         {
+            int comma = value.indexOf(',', start);
+            types[i] = value.substring(start, comma);
+            start = comma + 1;
+         }
+         types[count - 1] = value.substring(start);
+         return new Signature(value, types);
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return this.hashCode;
+      }
+
+      @Override
+      public boolean equals(Object o)
+      {
+         if (this == o)
+            return true;
+         if (o instanceof Signature == false)
+            return false;
+         Signature other = (Signature) o;
+         return this.hashCode == other.hashCode && Arrays.equals(this.types, other.types);
+      }
+   }
 }
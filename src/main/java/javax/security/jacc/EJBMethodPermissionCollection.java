@@ -0,0 +1,190 @@
+package javax.security.jacc;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.security.Permission;
+import java.security.PermissionCollection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * A {@code PermissionCollection} of {@code EJBMethodPermission} objects. The permissions are indexed in a tree keyed by
+ * the EJB name, then by the method name, the method interface and the method signature. Each level below the EJB name
+ * has a wildcard slot holding the permissions that do not constrain that component, so {@code implies} resolves an
+ * argument permission with at most two lookups per level instead of scanning the whole collection.
+ * </p>
+ *
+ * @see EJBMethodPermission#newPermissionCollection()
+ */
+final class EJBMethodPermissionCollection extends PermissionCollection
+{
+   private static final long serialVersionUID = 1;
+
+   /** the index levels below the EJB name: method name, method interface and method signature */
+   private static final int LEVELS = 3;
+
+   private final List<EJBMethodPermission> permissions = new ArrayList<EJBMethodPermission>();
+
+   /** the roots of the index, keyed by EJB name */
+   private transient ConcurrentMap<String, Node> beans = new ConcurrentHashMap<String, Node>();
+
+   /**
+    * <p>
+    * Adds an {@code EJBMethodPermission} to this collection.
+    * </p>
+    *
+    * @param permission
+    *           the {@code EJBMethodPermission} to be added.
+    * @throws IllegalArgumentException
+    *            if the permission is not an {@code EJBMethodPermission}.
+    * @throws SecurityException
+    *            if this collection has been marked read-only.
+    */
+   @Override
+   public void add(Permission permission)
+   {
+      if (permission instanceof EJBMethodPermission == false)
+         throw new IllegalArgumentException("Invalid permission type: " + permission);
+      if (isReadOnly())
+         throw new SecurityException("Cannot add a permission to a read-only PermissionCollection");
+      EJBMethodPermission perm = (EJBMethodPermission) permission;
+      synchronized (this)
+      {
+         this.permissions.add(perm);
+         index(perm);
+      }
+   }
+
+   /**
+    * <p>
+    * Checks if the specified permission is implied by one of the {@code EJBMethodPermission} objects held in this
+    * collection.
+    * </p>
+    *
+    * @param permission
+    *           the {@code Permission} to be checked.
+    * @return {@code true} if the permission is implied by this collection; {@code false} otherwise.
+    */
+   @Override
+   public boolean implies(Permission permission)
+   {
+      if (permission instanceof EJBMethodPermission == false)
+         return false;
+      EJBMethodPermission perm = (EJBMethodPermission) permission;
+      Node bean = this.beans.get(perm.getName());
+      return bean != null && matches(bean, perm, 0);
+   }
+
+   /**
+    * <p>
+    * Returns an enumeration of the {@code EJBMethodPermission} objects held in this collection.
+    * </p>
+    *
+    * @return an {@code Enumeration} of the permissions in this collection.
+    */
+   @Override
+   public synchronized Enumeration<Permission> elements()
+   {
+      return Collections.enumeration(new ArrayList<Permission>(this.permissions));
+   }
+
+   private void index(EJBMethodPermission perm)
+   {
+      Node node = this.beans.get(perm.getName());
+      if (node == null)
+      {
+         node = new Node();
+         this.beans.put(perm.getName(), node);
+      }
+      // the leaf node is created last, so concurrent readers never see a partially indexed permission as granted.
+      for (int level = 0; level < LEVELS; level++)
+         node = node.child(key(perm, level));
+   }
+
+   /**
+    * <p>
+    * Checks if the index below the specified node holds a permission implying the argument permission. A permission
+    * that specifies a component only implies argument permissions with an equal component, while the wildcard slot
+    * matches any value, including an unspecified one.
+    * </p>
+    */
+   private static boolean matches(Node node, EJBMethodPermission perm, int level)
+   {
+      if (level == LEVELS)
+         return true;
+      Node wildcard = node.wildcard;
+      if (wildcard != null && matches(wildcard, perm, level + 1))
+         return true;
+      String key = key(perm, level);
+      if (key == null)
+         return false;
+      ConcurrentMap<String, Node> children = node.children;
+      Node child = children == null ? null : children.get(key);
+      return child != null && matches(child, perm, level + 1);
+   }
+
+   private static String key(EJBMethodPermission perm, int level)
+   {
+      switch (level)
+      {
+         case 0 :
+            return perm.getMethodName();
+         case 1 :
+            return perm.getMethodInterface();
+         default :
+            return perm.getMethodSig();
+      }
+   }
+
+   private void readObject(ObjectInputStream ois) throws ClassNotFoundException, IOException
+   {
+      ois.defaultReadObject();
+      this.beans = new ConcurrentHashMap<String, Node>();
+      for (EJBMethodPermission perm : this.permissions)
+         index(perm);
+   }
+
+   private synchronized void writeObject(ObjectOutputStream oos) throws IOException
+   {
+      oos.defaultWriteObject();
+   }
+
+   /**
+    * <p>
+    * A node of the index. The children are keyed by the value of the next permission component, and the wildcard
+    * child holds the permissions that leave that component unspecified. Nodes are only modified while holding the lock
+    * of the owning collection.
+    * </p>
+    */
+   private static final class Node
+   {
+      private volatile Node wildcard;
+
+      private volatile ConcurrentMap<String, Node> children;
+
+      Node child(String key)
+      {
+         if (key == null)
+         {
+            if (this.wildcard == null)
+               this.wildcard = new Node();
+            return this.wildcard;
+         }
+         if (this.children == null)
+            this.children = new ConcurrentHashMap<String, Node>();
+         Node child = this.children.get(key);
+         if (child == null)
+         {
+            child = new Node();
+            this.children.put(key, child);
+         }
+         return child;
+      }
+   }
+}
@@ -2,6 +2,7 @@ package javax.security.jacc;
 
 import java.io.Serializable;
 import java.security.Permission;
+import java.security.PermissionCollection;
 
 /**
  * <p>
@@ -52,6 +53,8 @@ public final class EJBRoleRefPermission extends Permission implements Serializab
    public EJBRoleRefPermission(String ejbName, String actions)
    {
       super(ejbName);
+      if (actions == null)
+         throw new NullPointerException("The actions may not be null");
       this.actions = actions;
       this.hashCode = ejbName.hashCode() + actions.hashCode();
    }
@@ -119,6 +122,13 @@ public final class EJBRoleRefPermission extends Permission implements Serializab
    @Override
    public int hashCode()
    {
+      // recomputed on first use after deserialization, as the field is not restored.
+      int hashCode = this.hashCode;
+      if (hashCode == 0)
+      {
+         hashCode = getName().hashCode() + this.actions.hashCode();
+         this.hashCode = hashCode;
+      }
       return hashCode;
    }
 
@@ -144,6 +154,21 @@ public final class EJBRoleRefPermission extends Permission implements Serializab
       return equals(permission);
    }
 
+   /**
+    * <p>
+    * Returns a new {@code PermissionCollection} for storing {@code EJBRoleRefPermission} objects. The returned
+    * collection indexes the permissions by name and role reference, so that {@code implies} is a constant time
+    * lookup.
+    * </p>
+    * 
+    * @return a new {@code PermissionCollection} suitable for storing {@code EJBRoleRefPermission} objects.
+    */
+   @Override
+   public PermissionCollection newPermissionCollection()
+   {
+      return new RoleRefPermissionCollection(EJBRoleRefPermission.class);
+   }
+
    /**
     * <p>
     * Returns the {@code String} representation of this permission, which has the following form:
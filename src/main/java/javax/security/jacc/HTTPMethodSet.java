@@ -0,0 +1,274 @@
+package javax.security.jacc;
+
+import java.util.Arrays;
+import java.util.TreeSet;
+
+/**
+ * <p>
+ * An immutable set of HTTP methods, as used in the actions of the {@code WebResourcePermission} and {@code
+ * WebUserDataPermission} classes. The standard HTTP methods ("GET", "POST", "PUT", "DELETE", "HEAD", "OPTIONS" and
+ * "TRACE") are encoded as bits of a mask, so that containment and intersection tests between sets that only hold
+ * standard methods are reduced to a few bitwise operations. Extension methods are kept in a sorted array that is only
+ * allocated when the set actually contains extension methods.
+ * </p>
+ *
+ * @see WebResourcePermission
+ * @see WebUserDataPermission
+ */
+final class HTTPMethodSet
+{
+   /** The standard HTTP methods, in ascending lexical order. The index of a method is its bit in the mask. */
+   private static final String[] STANDARD_METHODS = {"DELETE", "GET", "HEAD", "OPTIONS", "POST", "PUT", "TRACE"};
+
+   private static final int ALL_STANDARD_METHODS = (1 << STANDARD_METHODS.length) - 1;
+
+   private static final String[] NO_EXTENSION_METHODS = new String[0];
+
+   /** The set of all standard HTTP methods */
+   static final HTTPMethodSet ALL_HTTP_METHODS = new HTTPMethodSet(ALL_STANDARD_METHODS, NO_EXTENSION_METHODS);
+
+   /** The sets holding a single standard HTTP method, indexed like STANDARD_METHODS */
+   private static final HTTPMethodSet[] SINGLE_METHODS = new HTTPMethodSet[STANDARD_METHODS.length];
+
+   static
+   {
+      for (int i = 0; i < STANDARD_METHODS.length; i++)
+         SINGLE_METHODS[i] = new HTTPMethodSet(1 << i, NO_EXTENSION_METHODS);
+   }
+
+   private final int mask;
+
+   private final String[] extensionMethods;
+
+   private final int hashCode;
+
+   private final String actions;
+
+   private HTTPMethodSet(int mask, String[] extensionMethods)
+   {
+      this.mask = mask;
+      this.extensionMethods = extensionMethods;
+
+      // same value as the hash code of a java.util.Set holding the method names.
+      int hashCode = 0;
+      for (int i = 0; i < STANDARD_METHODS.length; i++)
+      {
+         if ((mask & (1 << i)) != 0)
+            hashCode += STANDARD_METHODS[i].hashCode();
+      }
+      for (String method : extensionMethods)
+         hashCode += method.hashCode();
+      this.hashCode = hashCode;
+      this.actions = mask == ALL_STANDARD_METHODS && extensionMethods.length == 0 ? null : buildActions();
+   }
+
+   /**
+    * <p>
+    * Obtains the {@code HTTPMethodSet} for the specified comma separated list of HTTP methods.
+    * </p>
+    *
+    * @param methods
+    *           a comma separated list of HTTP methods. A {@code null} or empty list stands for all HTTP methods.
+    * @return the corresponding {@code HTTPMethodSet}.
+    */
+   static HTTPMethodSet valueOf(String methods)
+   {
+      String[] methodsArray = null;
+      if (methods != null && methods.length() > 0)
+         methodsArray = methods.split(",");
+      return valueOf(methodsArray);
+   }
+
+   /**
+    * <p>
+    * Obtains the {@code HTTPMethodSet} for the specified array of HTTP methods. Duplicate methods are eliminated.
+    * </p>
+    *
+    * @param methods
+    *           an array of HTTP methods. A {@code null} or empty array stands for all HTTP methods.
+    * @return the corresponding {@code HTTPMethodSet}.
+    */
+   static HTTPMethodSet valueOf(String[] methods)
+   {
+      if (methods == null || methods.length == 0)
+         return ALL_HTTP_METHODS;
+
+      int mask = 0;
+      TreeSet<String> extensions = null;
+      for (String method : methods)
+      {
+         int index = indexOf(method);
+         if (index >= 0)
+            mask |= 1 << index;
+         else
+         {
+            if (extensions == null)
+               extensions = new TreeSet<String>();
+            extensions.add(method);
+         }
+      }
+      if (extensions == null)
+         return valueOf(mask);
+      return new HTTPMethodSet(mask, extensions.toArray(new String[extensions.size()]));
+   }
+
+   /**
+    * <p>
+    * Obtains the {@code HTTPMethodSet} holding the single specified HTTP method, as returned by {@code
+    * HttpServletRequest.getMethod()}. The sets of the standard HTTP methods are shared, so this method does not
+    * allocate for them.
+    * </p>
+    *
+    * @param method
+    *           the HTTP method. A {@code null} or empty method stands for all HTTP methods.
+    * @return the corresponding {@code HTTPMethodSet}.
+    */
+   static HTTPMethodSet valueOfMethod(String method)
+   {
+      if (method == null || method.length() == 0)
+         return ALL_HTTP_METHODS;
+      int index = indexOf(method);
+      if (index >= 0)
+         return SINGLE_METHODS[index];
+      return new HTTPMethodSet(0, new String[] {method});
+   }
+
+   private static HTTPMethodSet valueOf(int mask)
+   {
+      if (mask == ALL_STANDARD_METHODS)
+         return ALL_HTTP_METHODS;
+      return new HTTPMethodSet(mask, NO_EXTENSION_METHODS);
+   }
+
+   /**
+    * <p>
+    * Returns the canonical actions {@code String} of this set: the HTTP methods sorted in ascending lexical order and
+    * separated by commas. The canonical form of the set of all HTTP methods is the value {@code null}.
+    * </p>
+    *
+    * @return the canonical actions of this set (or the {@code null} value).
+    */
+   String getActions()
+   {
+      return this.actions;
+   }
+
+   /**
+    * <p>
+    * Checks if this set contains all the HTTP methods of the specified set.
+    * </p>
+    *
+    * @param methods
+    *           the {@code HTTPMethodSet} to be checked.
+    * @return {@code true} if all the methods of the specified set are in this set; {@code false} otherwise.
+    */
+   boolean containsAll(HTTPMethodSet methods)
+   {
+      if ((methods.mask & ~this.mask) != 0)
+         return false;
+      for (String method : methods.extensionMethods)
+      {
+         if (Arrays.binarySearch(this.extensionMethods, method) < 0)
+            return false;
+      }
+      return true;
+   }
+
+   /**
+    * <p>
+    * Checks if this set and the specified set have at least one HTTP method in common.
+    * </p>
+    *
+    * @param methods
+    *           the {@code HTTPMethodSet} to be checked.
+    * @return {@code true} if the sets have a method in common; {@code false} otherwise.
+    */
+   boolean intersects(HTTPMethodSet methods)
+   {
+      if ((methods.mask & this.mask) != 0)
+         return true;
+      for (String method : methods.extensionMethods)
+      {
+         if (Arrays.binarySearch(this.extensionMethods, method) >= 0)
+            return true;
+      }
+      return false;
+   }
+
+   /*
+    * (non-Javadoc)
+    *
+    * @see java.lang.Object#hashCode()
+    */
+   @Override
+   public int hashCode()
+   {
+      return this.hashCode;
+   }
+
+   /*
+    * (non-Javadoc)
+    *
+    * @see java.lang.Object#equals(java.lang.Object)
+    */
+   @Override
+   public boolean equals(Object o)
+   {
+      if (this == o)
+         return true;
+      if (o instanceof HTTPMethodSet == false)
+         return false;
+      HTTPMethodSet other = (HTTPMethodSet) o;
+      return this.mask == other.mask && Arrays.equals(this.extensionMethods, other.extensionMethods);
+   }
+
+   /*
+    * (non-Javadoc)
+    *
+    * @see java.lang.Object#toString()
+    */
+   @Override
+   public String toString()
+   {
+      return buildActions();
+   }
+
+   private static int indexOf(String method)
+   {
+      for (int i = 0; i < STANDARD_METHODS.length; i++)
+      {
+         if (STANDARD_METHODS[i].equals(method))
+            return i;
+      }
+      return -1;
+   }
+
+   private String buildActions()
+   {
+      // merge the standard and extension methods, both already sorted, into one lexically ordered list.
+      StringBuilder tmp = new StringBuilder();
+      boolean first = true;
+      int standard = 0;
+      int extension = 0;
+      while (standard < STANDARD_METHODS.length || extension < this.extensionMethods.length)
+      {
+         if (standard < STANDARD_METHODS.length && (this.mask & (1 << standard)) == 0)
+         {
+            standard++;
+            continue;
+         }
+         String method;
+         if (standard == STANDARD_METHODS.length
+               || (extension < this.extensionMethods.length && this.extensionMethods[extension]
+                     .compareTo(STANDARD_METHODS[standard]) < 0))
+            method = this.extensionMethods[extension++];
+         else
+            method = STANDARD_METHODS[standard++];
+         if (first == false)
+            tmp.append(',');
+         tmp.append(method);
+         first = false;
+      }
+      return tmp.toString();
+   }
+}
@@ -0,0 +1,92 @@
+package javax.security.jacc;
+
+import java.security.Permission;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.jboss.jacc.CompiledWebPolicy;
+import org.jboss.jacc.JaccAccess;
+import org.jboss.jacc.PolicyContextSupport;
+import org.jboss.jacc.PolicyDecisionCache;
+import org.jboss.jacc.RoleRegistry;
+import org.jboss.jacc.URLPatternResolver;
+
+/**
+ * <p>
+ * Exposes the package-private extensions of the classes of this package to the {@code org.jboss.jacc} package. The
+ * single instance of this class is installed by {@code PolicyContext} when it is initialized.
+ * </p>
+ *
+ * @see JaccAccess
+ */
+final class JaccAccessImpl extends JaccAccess
+{
+   @Override
+   protected PolicyContextSupport.Handle getHandle(String key)
+   {
+      return PolicyContext.getHandle(key);
+   }
+
+   @Override
+   protected void registerHandler(String key, PolicyContextHandler handler, boolean replace, boolean memoize)
+   {
+      PolicyContext.registerHandler(key, handler, replace, memoize);
+   }
+
+   @Override
+   protected void setHandlerDataSupplier(PolicyContextSupport.HandlerDataSupplier supplier)
+   {
+      PolicyContext.setHandlerDataSupplier(supplier);
+   }
+
+   @Override
+   protected PolicyContextSupport.Scope enter(String contextID, Object data)
+   {
+      return PolicyContext.enter(contextID, data);
+   }
+
+   @Override
+   protected void run(String contextID, Object data, Runnable task)
+   {
+      PolicyContext.run(contextID, data, task);
+   }
+
+   @Override
+   protected <T> T call(String contextID, Object data, Callable<T> task) throws Exception
+   {
+      return PolicyContext.call(contextID, data, task);
+   }
+
+   @Override
+   protected PolicyContextSupport.Snapshot snapshot()
+   {
+      return PolicyContext.snapshot();
+   }
+
+   @Override
+   protected URLPatternResolver newURLPatternResolver(Collection<String> urlPatterns)
+   {
+      return new URLPatternResolverImpl(urlPatterns);
+   }
+
+   @Override
+   protected CompiledWebPolicy newCompiledWebPolicy(List<Permission> excluded, List<Permission> unchecked,
+         Map<String, List<Permission>> roles, RoleRegistry roleRegistry)
+   {
+      return new CompiledWebPolicyImpl(excluded, unchecked, roles, roleRegistry);
+   }
+
+   @Override
+   protected PolicyDecisionCache newPolicyDecisionCache()
+   {
+      return new PolicyDecisionCacheImpl();
+   }
+
+   @Override
+   protected PolicyDecisionCache newPolicyDecisionCache(int maxContexts, int maxDecisions)
+   {
+      return new PolicyDecisionCacheImpl(maxContexts, maxDecisions);
+   }
+}
@@ -1,11 +1,17 @@
 package javax.security.jacc;
 
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 import java.util.Map;
 import java.util.Collections;
 import java.util.HashMap;
 import java.security.SecurityPermission;
 
+import org.jboss.jacc.JaccAccess;
+import org.jboss.jacc.PolicyContextSupport;
+
 /**
  * <p>
  * This utility class is used by containers to communicate policy context identifiers and other policy relevant context
@@ -61,12 +67,33 @@ public final class PolicyContext
 
    private static SecurityPermission getPolicy = new SecurityPermission("getPolicy");
 
-   private static ThreadLocal<Object> handlerDataLocal = new ThreadLocal<Object>();
+   /** the slot holding the current {@code PolicyContextFrame} of each thread */
+   private static ThreadLocal<Slot> slotLocal = new ThreadLocal<Slot>()
+   {
+      @Override
+      protected Slot initialValue()
+      {
+         return new Slot();
+      }
+   };
 
-   private static ThreadLocal<String> contextIDLocal = new ThreadLocal<String>();
+   /** the scoped binding used by {@code run}, or null if {@code run} only uses the {@code ThreadLocal} */
+   private static ScopedBinding scopedBinding = ScopedValueBinding.create();
 
-   private static Map<String, PolicyContextHandler> handlerMap = Collections
-         .synchronizedMap(new HashMap<String, PolicyContextHandler>());
+   /** the value memoized for context objects that are null */
+   private static final Object NULL_CONTEXT = new Object();
+
+   /**
+    * The handler registrations, keyed by context object key. The map is never modified once published: registrations
+    * replace it with an updated copy, so lookups need no locking.
+    */
+   private static volatile Map<String, Registration> handlerMap = Collections.emptyMap();
+
+   static
+   {
+      // the extensions of this package that are not part of the JACC API are exposed by the org.jboss.jacc package.
+      JaccAccess.install(new JaccAccessImpl());
+   }
 
    /**
     * <p>
@@ -92,18 +119,33 @@ public final class PolicyContext
     */
    public static Object getContext(String key) throws PolicyContextException
    {
-      if (key == null || handlerMap.containsKey(key) == false)
+      Registration registration = key == null ? null : handlerMap.get(key);
+      if (registration == null)
          throw new IllegalArgumentException("No PolicyContextHandler for key=" + key);
       SecurityManager sm = System.getSecurityManager();
       if (sm != null)
          sm.checkPermission(getPolicy);
 
-      PolicyContextHandler handler = handlerMap.get(key);
-      if (handler.supports(key) == false)
+      if (registration.handler.supports(key) == false)
          throw new IllegalArgumentException("PolicyContextHandler does not support key=" + key);
-      Object data = handlerDataLocal.get();
-      Object context = handler.getContext(key, data);
-      return context;
+      return getContext(key, registration);
+   }
+
+   /**
+    * <p>
+    * Obtains a {@code Handle} for the specified context object key.
+    * </p>
+    * 
+    * @param key
+    *           - the context object key.
+    * @return the {@code Handle} for the key.
+    * @see PolicyContextSupport#getHandle(String)
+    */
+   static PolicyContextSupport.Handle getHandle(String key)
+   {
+      if (key == null)
+         throw new IllegalArgumentException("The key may not be null");
+      return new KeyHandle(key);
    }
 
    /**
@@ -121,7 +163,7 @@ public final class PolicyContext
     */
    public static String getContextID()
    {
-      String contextID = contextIDLocal.get();
+      String contextID = frame().getContextID();
       return contextID;
    }
 
@@ -171,6 +213,27 @@ public final class PolicyContext
     */
    public static void registerHandler(String key, PolicyContextHandler handler, boolean replace)
          throws PolicyContextException
+   {
+      registerHandler(key, handler, replace, false);
+   }
+
+   /**
+    * <p>
+    * Registers a container specific {@code PolicyContext} handler, optionally memoizing the context objects returned by
+    * the handler.
+    * </p>
+    * 
+    * @param key
+    *           - the context object key handled by the handler.
+    * @param handler
+    *           - the handler.
+    * @param replace
+    *           - {@code true} if an existing handler of the key may be replaced.
+    * @param memoize
+    *           - {@code true} if the context objects returned by the handler for the key are to be memoized.
+    * @see PolicyContextSupport#registerHandler(String, PolicyContextHandler, boolean, boolean)
+    */
+   static void registerHandler(String key, PolicyContextHandler handler, boolean replace, boolean memoize)
    {
       if (key == null)
          throw new IllegalArgumentException("The key may not be null");
@@ -179,12 +242,17 @@ public final class PolicyContext
       SecurityManager sm = System.getSecurityManager();
       if (sm != null)
          sm.checkPermission(setPolicy);
-      if (replace == false && handlerMap.containsKey(key) == true)
+      synchronized (PolicyContext.class)
       {
-         String msg = "Handler for key=" + key + ", exists, handler: " + handlerMap.get(key);
-         throw new IllegalArgumentException(msg);
+         if (replace == false && handlerMap.containsKey(key) == true)
+         {
+            String msg = "Handler for key=" + key + ", exists, handler: " + handlerMap.get(key).handler;
+            throw new IllegalArgumentException(msg);
+         }
+         Map<String, Registration> handlers = new HashMap<String, Registration>(handlerMap);
+         handlers.put(key, new Registration(handler, memoize));
+         handlerMap = Collections.unmodifiableMap(handlers);
       }
-      handlerMap.put(key, handler);
    }
 
    /**
@@ -198,13 +266,17 @@ public final class PolicyContext
     *           {@code PolicyContext} for the calling thread. The value null is a legitimate value for this parameter.
     * @throws SecurityException
     *            - if the calling {@code AccessControlContext} is not authorized by the container to call this method.
+    * @throws IllegalStateException
+    *            - if called from a subtask of a task run by {@link PolicyContextSupport#run(String, Object,
+    *            Runnable)} with a scoped binding.
     */
    public static void setContextID(String contextID)
    {
       SecurityManager sm = System.getSecurityManager();
       if (sm != null)
          sm.checkPermission(setPolicy);
-      contextIDLocal.set(contextID);
+      Slot slot = slot();
+      slot.frame = slot.frame.withContextID(contextID);
    }
 
    /**
@@ -221,13 +293,254 @@ public final class PolicyContext
     *           setHandlerData} has not been called on the thread.
     * @throws SecurityException
     *            - if the calling {@code AccessControlContext} is not authorized by the container to call this method.
+    * @throws IllegalStateException
+    *            - if called from a subtask of a task run by {@link PolicyContextSupport#run(String, Object,
+    *            Runnable)} with a scoped binding.
     */
    public static void setHandlerData(Object data)
    {
       SecurityManager sm = System.getSecurityManager();
       if (sm != null)
          sm.checkPermission(setPolicy);
-      handlerDataLocal.set(data);
+      Slot slot = slot();
+      slot.frame = slot.frame.withHandlerData(data);
+   }
+
+   /**
+    * <p>
+    * Associates handler data built by the specified supplier with the calling thread.
+    * </p>
+    * 
+    * @param supplier
+    *           - the supplier of the handler data, or null.
+    * @see PolicyContextSupport#setHandlerDataSupplier(PolicyContextSupport.HandlerDataSupplier)
+    */
+   static void setHandlerDataSupplier(PolicyContextSupport.HandlerDataSupplier supplier)
+   {
+      SecurityManager sm = System.getSecurityManager();
+      if (sm != null)
+         sm.checkPermission(setPolicy);
+      Slot slot = slot();
+      slot.frame = supplier == null ? slot.frame.withHandlerData(null) : slot.frame.withHandlerDataSupplier(supplier);
+   }
+
+   /**
+    * <p>
+    * Sets both the policy context identifier and the handler data of the calling thread until the returned scope is
+    * closed.
+    * </p>
+    * 
+    * @param contextID
+    *           - the policy context identifier to be assigned to the calling thread.
+    * @param data
+    *           - the handler data to be associated with the calling thread.
+    * @return the {@code Scope} restoring the previous policy context identifier and handler data.
+    * @see PolicyContextSupport#enter(String, Object)
+    */
+   static PolicyContextSupport.Scope enter(String contextID, Object data)
+   {
+      SecurityManager sm = System.getSecurityManager();
+      if (sm != null)
+         sm.checkPermission(setPolicy);
+      Slot slot = slot();
+      SlotScope scope = new SlotScope(slot, slot.frame);
+      slot.frame = new PolicyContextFrame(contextID, data);
+      return scope;
+   }
+
+   /**
+    * <p>
+    * Runs a task with the specified policy context identifier and handler data.
+    * </p>
+    * 
+    * @param contextID
+    *           - the policy context identifier to be assigned to the task.
+    * @param data
+    *           - the handler data to be associated with the task.
+    * @param task
+    *           - the task to run.
+    * @see PolicyContextSupport#run(String, Object, Runnable)
+    */
+   static void run(String contextID, Object data, Runnable task)
+   {
+      if (task == null)
+         throw new IllegalArgumentException("The task may not be null");
+      SecurityManager sm = System.getSecurityManager();
+      if (sm != null)
+         sm.checkPermission(setPolicy);
+      run(new PolicyContextFrame(contextID, data), task);
+   }
+
+   /**
+    * <p>
+    * Calls a task with the specified policy context identifier and handler data, and returns its result.
+    * </p>
+    * 
+    * @param contextID
+    *           - the policy context identifier to be assigned to the task.
+    * @param data
+    *           - the handler data to be associated with the task.
+    * @param task
+    *           - the task to call.
+    * @return the result of the task.
+    * @throws Exception
+    *            - if the task throws an exception.
+    * @see PolicyContextSupport#call(String, Object, Callable)
+    */
+   static <T> T call(String contextID, Object data, Callable<T> task) throws Exception
+   {
+      if (task == null)
+         throw new IllegalArgumentException("The task may not be null");
+      CallTask<T> call = new CallTask<T>(task);
+      run(contextID, data, call);
+      return call.get();
+   }
+
+   /**
+    * <p>
+    * Captures the policy context identifier and handler data of the calling thread.
+    * </p>
+    * 
+    * @return the {@code Snapshot} of the policy context of the calling thread.
+    * @see PolicyContextSupport#snapshot()
+    */
+   static PolicyContextSupport.Snapshot snapshot()
+   {
+      SecurityManager sm = System.getSecurityManager();
+      if (sm != null)
+         sm.checkPermission(setPolicy);
+      return new FrameSnapshot(frame());
+   }
+
+   /**
+    * <p>
+    * Runs a task with the specified frame, restoring the previous frame of the thread when the task completes.
+    * </p>
+    * 
+    * @param frame
+    *           - the frame to install.
+    * @param task
+    *           - the task to run.
+    */
+   private static void run(PolicyContextFrame frame, Runnable task)
+   {
+      ScopedBinding scopedBinding = PolicyContext.scopedBinding;
+      if (scopedBinding != null)
+      {
+         scopedBinding.run(new Binding(frame), task);
+         return;
+      }
+      Slot slot = slotLocal.get();
+      PolicyContextFrame previous = slot.frame;
+      slot.frame = frame;
+      try
+      {
+         task.run();
+      }
+      finally
+      {
+         slot.frame = previous;
+      }
+   }
+
+   /**
+    * <p>
+    * Activates the handler of a registration with the handler data of the calling thread, or returns the context
+    * object memoized for the current frame of the thread.
+    * </p>
+    * 
+    * @param key
+    *           - the context object key.
+    * @param registration
+    *           - the registration of the handler.
+    * @return the context object.
+    * @throws PolicyContextException
+    *            - if the handler throws it.
+    */
+   private static Object getContext(String key, Registration registration) throws PolicyContextException
+   {
+      PolicyContextFrame frame = frame();
+      Object data = frame.getHandlerData();
+      // the empty frame is shared by all the threads that have not set their policy context.
+      if (registration.memoize == false || frame == PolicyContextFrame.EMPTY)
+         return registration.handler.getContext(key, data);
+
+      ConcurrentMap<Object, Object> memo = frame.getMemo();
+      Object context = memo.get(registration);
+      if (context == null)
+      {
+         context = registration.handler.getContext(key, data);
+         memo.putIfAbsent(registration, context == null ? NULL_CONTEXT : context);
+      }
+      return context == NULL_CONTEXT ? null : context;
+   }
+
+   /**
+    * <p>
+    * Obtains the current frame of the calling thread: within a {@code run} using the scoped binding, the frame of the
+    * slot of the binding on the thread that called {@code run}, and the frame bound by {@code run} on its subtasks;
+    * the frame of the slot of the thread otherwise.
+    * </p>
+    * 
+    * @return the current {@code PolicyContextFrame}.
+    */
+   private static PolicyContextFrame frame()
+   {
+      ScopedBinding scopedBinding = PolicyContext.scopedBinding;
+      if (scopedBinding != null)
+      {
+         Binding binding = (Binding) scopedBinding.current();
+         if (binding != null)
+            return binding.owner == Thread.currentThread() ? binding.slot.frame : binding.frame;
+      }
+      return slotLocal.get().frame;
+   }
+
+   /**
+    * <p>
+    * Obtains the slot holding the current frame of the calling thread, so that it can be changed: within a {@code run}
+    * using the scoped binding, the slot of the binding, which is confined to the thread that called {@code run}; the
+    * slot of the thread otherwise.
+    * </p>
+    * 
+    * @return the current {@code Slot}.
+    * @throws IllegalStateException
+    *            - if the calling thread is a subtask of a task run with the scoped binding.
+    */
+   private static Slot slot()
+   {
+      ScopedBinding scopedBinding = PolicyContext.scopedBinding;
+      if (scopedBinding != null)
+      {
+         Binding binding = (Binding) scopedBinding.current();
+         if (binding != null)
+         {
+            if (binding.owner != Thread.currentThread())
+            {
+               String msg = "The policy context of a subtask may only be set with PolicyContext.run";
+               throw new IllegalStateException(msg);
+            }
+            return binding.slot;
+         }
+      }
+      return slotLocal.get();
+   }
+
+   /**
+    * <p>
+    * Replaces the scoped binding used by {@code run}. This method is meant for tests, which exercise the handling of
+    * the scoped binding on runtimes that do not provide {@code ScopedValue}.
+    * </p>
+    * 
+    * @param binding
+    *           - the scoped binding to use, or null to only use the {@code ThreadLocal}.
+    * @return the scoped binding that was in use.
+    */
+   static ScopedBinding setScopedBinding(ScopedBinding binding)
+   {
+      ScopedBinding previous = scopedBinding;
+      scopedBinding = binding;
+      return previous;
    }
 
    /**
@@ -238,4 +551,261 @@ public final class PolicyContext
    private PolicyContext()
    {
    }
+
+   /**
+    * <p>
+    * The handle returned by {@link PolicyContext#getHandle(String)}. It keeps the registration of the handler of its
+    * key and the result of its {@code supports} method, along with the handler registrations they were resolved from,
+    * so that they are resolved again once {@code registerHandler} changes the registrations.
+    * </p>
+    */
+   private static final class KeyHandle implements PolicyContextSupport.Handle
+   {
+      private final String key;
+
+      private volatile Resolution resolution;
+
+      KeyHandle(String key)
+      {
+         this.key = key;
+      }
+
+      @Override
+      public String getKey()
+      {
+         return this.key;
+      }
+
+      @Override
+      public Object getContext() throws PolicyContextException
+      {
+         Map<String, Registration> handlers = handlerMap;
+         Resolution resolution = this.resolution;
+         boolean stale = resolution == null || resolution.handlers != handlers;
+         Registration registration = stale ? handlers.get(this.key) : resolution.registration;
+         if (registration == null)
+            throw new IllegalArgumentException("No PolicyContextHandler for key=" + this.key);
+         SecurityManager sm = System.getSecurityManager();
+         if (sm != null)
+            sm.checkPermission(getPolicy);
+
+         // the handler is only asked whether it supports the key once the caller is known to be authorized.
+         if (stale)
+         {
+            resolution = new Resolution(handlers, registration, registration.handler.supports(this.key));
+            this.resolution = resolution;
+         }
+         if (resolution.supported == false)
+            throw new IllegalArgumentException("PolicyContextHandler does not support key=" + this.key);
+         return PolicyContext.getContext(this.key, resolution.registration);
+      }
+   }
+
+   /**
+    * <p>
+    * The scope entered by {@link PolicyContext#enter(String, Object)}, restoring the previous frame of the slot it was
+    * entered on.
+    * </p>
+    */
+   private static final class SlotScope implements PolicyContextSupport.Scope
+   {
+      private final Slot slot;
+
+      private final PolicyContextFrame previous;
+
+      private boolean closed;
+
+      SlotScope(Slot slot, PolicyContextFrame previous)
+      {
+         this.slot = slot;
+         this.previous = previous;
+      }
+
+      @Override
+      public void close()
+      {
+         if (this.closed == false)
+         {
+            this.closed = true;
+            this.slot.frame = this.previous;
+         }
+      }
+   }
+
+   /**
+    * <p>
+    * The snapshot taken by {@link PolicyContext#snapshot()}, running the tasks it wraps with the frame it captured.
+    * </p>
+    */
+   private static final class FrameSnapshot implements PolicyContextSupport.Snapshot
+   {
+      private final PolicyContextFrame frame;
+
+      FrameSnapshot(PolicyContextFrame frame)
+      {
+         this.frame = frame;
+      }
+
+      @Override
+      public String getContextID()
+      {
+         return this.frame.getContextID();
+      }
+
+      @Override
+      public Runnable wrap(final Runnable task)
+      {
+         if (task == null)
+            throw new IllegalArgumentException("The task may not be null");
+         return new Runnable()
+         {
+            public void run()
+            {
+               PolicyContext.run(FrameSnapshot.this.frame, task);
+            }
+         };
+      }
+
+      @Override
+      public <T> Callable<T> wrap(final Callable<T> task)
+      {
+         if (task == null)
+            throw new IllegalArgumentException("The task may not be null");
+         return new Callable<T>()
+         {
+            public T call() throws Exception
+            {
+               CallTask<T> call = new CallTask<T>(task);
+               PolicyContext.run(FrameSnapshot.this.frame, call);
+               return call.get();
+            }
+         };
+      }
+
+      @Override
+      public Executor wrap(final Executor executor)
+      {
+         if (executor == null)
+            throw new IllegalArgumentException("The executor may not be null");
+         return new Executor()
+         {
+            public void execute(Runnable command)
+            {
+               executor.execute(wrap(command));
+            }
+         };
+      }
+   }
+
+   /**
+    * <p>
+    * The current frame of a thread. Keeping the frame in a mutable slot lets a {@code Scope} restore the previous frame
+    * without accessing the {@code ThreadLocal} again.
+    * </p>
+    */
+   private static final class Slot
+   {
+      private PolicyContextFrame frame = PolicyContextFrame.EMPTY;
+   }
+
+   /**
+    * <p>
+    * The policy context bound by {@code run} when the scoped binding is enabled. The bound frame is immutable and is
+    * all the subtasks of the task see; the changes the task makes to its own policy context go to a slot that only the
+    * thread that called {@code run} uses, so that no mutable state is shared through the binding.
+    * </p>
+    */
+   private static final class Binding
+   {
+      private final PolicyContextFrame frame;
+
+      private final Thread owner;
+
+      private final Slot slot = new Slot();
+
+      Binding(PolicyContextFrame frame)
+      {
+         this.frame = frame;
+         this.owner = Thread.currentThread();
+         this.slot.frame = frame;
+      }
+   }
+
+   /**
+    * <p>
+    * A handler registered to a key. Registrations are compared by identity, so that the context objects memoized for a
+    * handler are not returned once another handler is registered to the key.
+    * </p>
+    */
+   private static final class Registration
+   {
+      private final PolicyContextHandler handler;
+
+      private final boolean memoize;
+
+      Registration(PolicyContextHandler handler, boolean memoize)
+      {
+         this.handler = handler;
+         this.memoize = memoize;
+      }
+   }
+
+   /**
+    * <p>
+    * Adapts a {@code Callable} to a {@code Runnable}, so that it can be run with a frame.
+    * </p>
+    */
+   private static final class CallTask<T> implements Runnable
+   {
+      private final Callable<T> callable;
+
+      private T result;
+
+      private Exception exception;
+
+      CallTask(Callable<T> callable)
+      {
+         this.callable = callable;
+      }
+
+      public void run()
+      {
+         try
+         {
+            this.result = this.callable.call();
+         }
+         catch (Exception e)
+         {
+            this.exception = e;
+         }
+      }
+
+      T get() throws Exception
+      {
+         if (this.exception != null)
+            throw this.exception;
+         return this.result;
+      }
+   }
+
+   /**
+    * <p>
+    * The handler registered to a key in a given snapshot of the handler registrations.
+    * </p>
+    */
+   private static final class Resolution
+   {
+      private final Map<String, Registration> handlers;
+
+      private final Registration registration;
+
+      private final boolean supported;
+
+      Resolution(Map<String, Registration> handlers, Registration registration, boolean supported)
+      {
+         this.handlers = handlers;
+         this.registration = registration;
+         this.supported = supported;
+      }
+   }
 }
@@ -0,0 +1,140 @@
+package javax.security.jacc;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jboss.jacc.PolicyContextSupport;
+
+/**
+ * <p>
+ * The policy context of a thread: its policy context identifier and its handler data. Frames are immutable, so that a
+ * frame can be saved and restored as a whole when a container enters and leaves a component.
+ * </p>
+ *
+ * <p>
+ * A frame also holds the context objects memoized for it by {@code PolicyContext}. Every change of the policy context
+ * of a thread installs a new frame, so the memoized context objects never outlive the policy context they were
+ * obtained for.
+ * </p>
+ *
+ * <p>
+ * The handler data of a frame may be supplied lazily, in which case the supplier is called when the handler data is
+ * first needed, without holding any lock, and its result is then shared by all the threads the frame was propagated
+ * to. The supplier is called once, unless several of these threads first need the handler data at the same time: each
+ * of them may then call the supplier, and they all use the handler data published first.
+ * </p>
+ *
+ * @see PolicyContext
+ */
+final class PolicyContextFrame
+{
+   /** The frame of a thread on which neither the policy context identifier nor the handler data has been set */
+   static final PolicyContextFrame EMPTY = new PolicyContextFrame(null, null);
+
+   private final String contextID;
+
+   private final Object handlerData;
+
+   /** the memoized context objects, keyed by handler registration, or null if none has been memoized yet */
+   private volatile ConcurrentMap<Object, Object> memo;
+
+   PolicyContextFrame(String contextID, Object handlerData)
+   {
+      this.contextID = contextID;
+      this.handlerData = handlerData;
+   }
+
+   String getContextID()
+   {
+      return this.contextID;
+   }
+
+   Object getHandlerData()
+   {
+      Object handlerData = this.handlerData;
+      if (handlerData instanceof LazyHandlerData)
+         return ((LazyHandlerData) handlerData).get();
+      return handlerData;
+   }
+
+   /**
+    * <p>
+    * Obtains the map holding the context objects memoized for this frame, creating it if necessary.
+    * </p>
+    *
+    * @return the memoized context objects, keyed by handler registration.
+    */
+   ConcurrentMap<Object, Object> getMemo()
+   {
+      ConcurrentMap<Object, Object> memo = this.memo;
+      if (memo == null)
+      {
+         synchronized (this)
+         {
+            memo = this.memo;
+            if (memo == null)
+            {
+               memo = new ConcurrentHashMap<Object, Object>();
+               this.memo = memo;
+            }
+         }
+      }
+      return memo;
+   }
+
+   PolicyContextFrame withContextID(String contextID)
+   {
+      return new PolicyContextFrame(contextID, this.handlerData);
+   }
+
+   PolicyContextFrame withHandlerData(Object handlerData)
+   {
+      return new PolicyContextFrame(this.contextID, handlerData);
+   }
+
+   PolicyContextFrame withHandlerDataSupplier(PolicyContextSupport.HandlerDataSupplier supplier)
+   {
+      return new PolicyContextFrame(this.contextID, new LazyHandlerData(supplier));
+   }
+
+   /**
+    * <p>
+    * Handler data built by a supplier the first time it is needed.
+    * </p>
+    */
+   private static final class LazyHandlerData
+   {
+      /** the value of {@code handlerData} until the handler data has been built */
+      private static final Object UNSET = new Object();
+
+      private final AtomicReference<Object> handlerData = new AtomicReference<Object>(UNSET);
+
+      private volatile PolicyContextSupport.HandlerDataSupplier supplier;
+
+      LazyHandlerData(PolicyContextSupport.HandlerDataSupplier supplier)
+      {
+         this.supplier = supplier;
+      }
+
+      Object get()
+      {
+         Object handlerData = this.handlerData.get();
+         if (handlerData != UNSET)
+            return handlerData;
+         // the supplier is only released once its result is published.
+         PolicyContextSupport.HandlerDataSupplier supplier = this.supplier;
+         if (supplier == null)
+            return this.handlerData.get();
+
+         handlerData = supplier.getHandlerData();
+         if (this.handlerData.compareAndSet(UNSET, handlerData))
+         {
+            // the supplier is released once called, along with whatever it holds to build the handler data.
+            this.supplier = null;
+            return handlerData;
+         }
+         return this.handlerData.get();
+      }
+   }
+}
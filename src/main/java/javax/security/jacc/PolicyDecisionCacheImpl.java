@@ -0,0 +1,213 @@
+package javax.security.jacc;
+
+import java.security.Permission;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.jboss.jacc.PolicyDecisionCache;
+
+/**
+ * <p>
+ * The {@code PolicyDecisionCache} of this package, which keeps the policy contexts, their decisions and the role sets
+ * in the {@code BoundedCache} also used by the permissions of this package.
+ * </p>
+ *
+ * @see PolicyDecisionCache#newInstance(int, int)
+ */
+final class PolicyDecisionCacheImpl extends PolicyDecisionCache
+{
+   /** The default maximum number of policy contexts whose decisions are cached */
+   private static final int DEFAULT_MAX_CONTEXTS = 256;
+
+   /** The default maximum number of decisions cached per policy context */
+   private static final int DEFAULT_MAX_DECISIONS = 8192;
+
+   /** The maximum number of canonical role sets kept by the cache */
+   private static final int MAX_ROLE_SETS = 1024;
+
+   private final int maxDecisions;
+
+   /** the cached decisions, keyed by policy context identifier */
+   private final BoundedCache<String, BoundedCache<Key, Boolean>> contexts;
+
+   /** the canonical role sets, keyed by themselves */
+   private final BoundedCache<SortedRoleSet, SortedRoleSet> roleSets = new BoundedCache<SortedRoleSet, SortedRoleSet>(
+         MAX_ROLE_SETS);
+
+   /**
+    * <p>
+    * Creates a new {@code PolicyDecisionCacheImpl} with the default bounds on the number of policy contexts and on
+    * the number of decisions cached per policy context.
+    * </p>
+    */
+   PolicyDecisionCacheImpl()
+   {
+      this(DEFAULT_MAX_CONTEXTS, DEFAULT_MAX_DECISIONS);
+   }
+
+   /**
+    * <p>
+    * Creates a new {@code PolicyDecisionCacheImpl}.
+    * </p>
+    *
+    * @param maxContexts
+    *           - the maximum number of policy contexts whose decisions are cached.
+    * @param maxDecisions
+    *           - the maximum number of decisions cached per policy context.
+    */
+   PolicyDecisionCacheImpl(int maxContexts, int maxDecisions)
+   {
+      if (maxContexts < 0)
+         throw new IllegalArgumentException("The maximum number of contexts may not be negative");
+      if (maxDecisions < 0)
+         throw new IllegalArgumentException("The maximum number of decisions may not be negative");
+      this.contexts = new BoundedCache<String, BoundedCache<Key, Boolean>>(maxContexts);
+      this.maxDecisions = maxDecisions;
+   }
+
+   @Override
+   public RoleSet roleSet(Collection<String> roles)
+   {
+      SortedRoleSet roleSet = new SortedRoleSet(new TreeSet<String>(roles).toArray(new String[0]));
+      SortedRoleSet canonical = this.roleSets.get(roleSet);
+      if (canonical == null)
+         canonical = this.roleSets.putIfAbsent(roleSet, roleSet);
+      return canonical;
+   }
+
+   @Override
+   public boolean implies(String contextID, RoleSet roles, Permission permission, Evaluator evaluator)
+   {
+      BoundedCache<Key, Boolean> decisions = decisions(contextID);
+      Key key = new Key(roles, permission);
+      Boolean decision = decisions.get(key);
+      if (decision == null)
+      {
+         decision = Boolean.valueOf(evaluator.implies(contextID, roles, permission));
+         // if the context was invalidated or evicted meanwhile, the decision goes into the discarded cache.
+         decisions.putIfAbsent(key, decision);
+      }
+      return decision.booleanValue();
+   }
+
+   @Override
+   public void invalidate(String contextID)
+   {
+      this.contexts.remove(contextID);
+   }
+
+   private BoundedCache<Key, Boolean> decisions(String contextID)
+   {
+      BoundedCache<Key, Boolean> decisions = this.contexts.get(contextID);
+      if (decisions == null)
+         decisions = this.contexts.putIfAbsent(contextID, new BoundedCache<Key, Boolean>(this.maxDecisions));
+      return decisions;
+   }
+
+   /**
+    * <p>
+    * The {@code RoleSet} of this cache, which keeps the role names sorted so that equal sets have equal arrays.
+    * </p>
+    */
+   private static final class SortedRoleSet implements RoleSet
+   {
+      /** the role names, in ascending order and without duplicates */
+      private final String[] roles;
+
+      private final int hashCode;
+
+      private SortedRoleSet(String[] roles)
+      {
+         this.roles = roles;
+         this.hashCode = Arrays.hashCode(roles);
+      }
+
+      @Override
+      public Set<String> getRoles()
+      {
+         return Collections.unmodifiableSet(new LinkedHashSet<String>(Arrays.asList(this.roles)));
+      }
+
+      /*
+       * (non-Javadoc)
+       *
+       * @see java.lang.Object#hashCode()
+       */
+      @Override
+      public int hashCode()
+      {
+         return this.hashCode;
+      }
+
+      /*
+       * (non-Javadoc)
+       *
+       * @see java.lang.Object#equals(java.lang.Object)
+       */
+      @Override
+      public boolean equals(Object o)
+      {
+         if (this == o)
+            return true;
+         if (o instanceof SortedRoleSet == false)
+            return false;
+         SortedRoleSet other = (SortedRoleSet) o;
+         return this.hashCode == other.hashCode && Arrays.equals(this.roles, other.roles);
+      }
+
+      /*
+       * (non-Javadoc)
+       *
+       * @see java.lang.Object#toString()
+       */
+      @Override
+      public String toString()
+      {
+         return Arrays.toString(this.roles);
+      }
+   }
+
+   /**
+    * <p>
+    * The key of a cached decision within a policy context.
+    * </p>
+    */
+   private static final class Key
+   {
+      private final RoleSet roles;
+
+      private final Permission permission;
+
+      private final int hashCode;
+
+      Key(RoleSet roles, Permission permission)
+      {
+         this.roles = roles;
+         this.permission = permission;
+         this.hashCode = 31 * roles.hashCode() + permission.hashCode();
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return this.hashCode;
+      }
+
+      @Override
+      public boolean equals(Object o)
+      {
+         if (this == o)
+            return true;
+         if (o instanceof Key == false)
+            return false;
+         Key other = (Key) o;
+         return this.hashCode == other.hashCode && this.roles.equals(other.roles)
+               && this.permission.getClass() == other.permission.getClass()
+               && this.permission.equals(other.permission);
+      }
+   }
+}
@@ -0,0 +1,132 @@
+package javax.security.jacc;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.security.Permission;
+import java.security.PermissionCollection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * A {@code PermissionCollection} of {@code WebRoleRefPermission} or {@code EJBRoleRefPermission} objects. A role
+ * reference permission only implies an equal permission, so the permissions are indexed by component (servlet or EJB)
+ * name and then by role reference, and {@code implies} is reduced to two hash lookups.
+ * </p>
+ *
+ * @see WebRoleRefPermission#newPermissionCollection()
+ * @see EJBRoleRefPermission#newPermissionCollection()
+ */
+final class RoleRefPermissionCollection extends PermissionCollection
+{
+   private static final long serialVersionUID = 1;
+
+   /** the type of the permissions held by this collection */
+   private final Class<? extends Permission> type;
+
+   private final List<Permission> permissions = new ArrayList<Permission>();
+
+   /** the role references of the permissions, keyed by component name */
+   private transient ConcurrentMap<String, Set<String>> roleRefs = new ConcurrentHashMap<String, Set<String>>();
+
+   /**
+    * <p>
+    * Creates an empty {@code RoleRefPermissionCollection}.
+    * </p>
+    *
+    * @param type
+    *           the type of the role reference permissions to be held by this collection.
+    */
+   RoleRefPermissionCollection(Class<? extends Permission> type)
+   {
+      this.type = type;
+   }
+
+   /**
+    * <p>
+    * Adds a role reference permission to this collection.
+    * </p>
+    *
+    * @param permission
+    *           the permission to be added.
+    * @throws IllegalArgumentException
+    *            if the permission is not of the type held by this collection.
+    * @throws SecurityException
+    *            if this collection has been marked read-only.
+    */
+   @Override
+   public void add(Permission permission)
+   {
+      if (this.type.isInstance(permission) == false)
+         throw new IllegalArgumentException("Invalid permission type: " + permission);
+      if (isReadOnly())
+         throw new SecurityException("Cannot add a permission to a read-only PermissionCollection");
+      synchronized (this)
+      {
+         this.permissions.add(permission);
+         index(permission);
+      }
+   }
+
+   /**
+    * <p>
+    * Checks if the specified permission is implied by (that is, equal to) one of the permissions held in this
+    * collection.
+    * </p>
+    *
+    * @param permission
+    *           the {@code Permission} to be checked.
+    * @return {@code true} if the permission is implied by this collection; {@code false} otherwise.
+    */
+   @Override
+   public boolean implies(Permission permission)
+   {
+      if (this.type.isInstance(permission) == false)
+         return false;
+      Set<String> refs = this.roleRefs.get(permission.getName());
+      return refs != null && refs.contains(permission.getActions());
+   }
+
+   /**
+    * <p>
+    * Returns an enumeration of the permissions held in this collection.
+    * </p>
+    *
+    * @return an {@code Enumeration} of the permissions in this collection.
+    */
+   @Override
+   public synchronized Enumeration<Permission> elements()
+   {
+      return Collections.enumeration(new ArrayList<Permission>(this.permissions));
+   }
+
+   private void index(Permission permission)
+   {
+      Set<String> refs = this.roleRefs.get(permission.getName());
+      if (refs == null)
+      {
+         refs = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+         this.roleRefs.put(permission.getName(), refs);
+      }
+      refs.add(permission.getActions());
+   }
+
+   private void readObject(ObjectInputStream ois) throws ClassNotFoundException, IOException
+   {
+      ois.defaultReadObject();
+      this.roleRefs = new ConcurrentHashMap<String, Set<String>>();
+      for (Permission permission : this.permissions)
+         index(permission);
+   }
+
+   private synchronized void writeObject(ObjectOutputStream oos) throws IOException
+   {
+      oos.defaultWriteObject();
+   }
+}
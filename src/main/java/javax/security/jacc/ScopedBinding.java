@@ -0,0 +1,35 @@
+package javax.security.jacc;
+
+/**
+ * <p>
+ * Binds a value to a thread for the duration of a task, and to the structured subtasks of that task. {@code
+ * PolicyContext.run} uses a scoped binding, when one is in use, to make the policy context of a task visible to its
+ * subtasks.
+ * </p>
+ *
+ * @see ScopedValueBinding
+ */
+interface ScopedBinding
+{
+   /**
+    * <p>
+    * Obtains the value bound by the innermost enclosing {@link #run(Object, Runnable)}.
+    * </p>
+    *
+    * @return the bound value, or {@code null} if no value is bound.
+    */
+   Object current();
+
+   /**
+    * <p>
+    * Runs a task with a value bound, for the duration of the task, to the calling thread and to the structured
+    * subtasks of the task.
+    * </p>
+    *
+    * @param value
+    *           - the value to bind. The value of this parameter must not be null.
+    * @param task
+    *           - the task to run.
+    */
+   void run(Object value, Runnable task);
+}
@@ -0,0 +1,125 @@
+package javax.security.jacc;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * <p>
+ * Binds the policy context of {@code PolicyContext.run} to a {@code java.lang.ScopedValue}, on the runtimes that
+ * provide it. A scoped binding lasts exactly as long as the task it was made for, is inherited by the structured
+ * subtasks of that task, and leaves no entry behind in the thread, which suits short-lived virtual threads better
+ * than a {@code ThreadLocal}.
+ * </p>
+ *
+ * <p>
+ * The binding is used when the {@code javax.security.jacc.PolicyContext.scopedValue} system property is set to
+ * {@code true}; it is otherwise disabled and {@code PolicyContext} only uses its {@code ThreadLocal}. The property is
+ * considered unset if the security manager does not allow reading it. {@code ScopedValue} is accessed through method
+ * handles since this class is compiled for runtimes that predate it.
+ * </p>
+ *
+ * @see PolicyContext#run(String, Object, Runnable)
+ */
+final class ScopedValueBinding implements ScopedBinding
+{
+   private static final String SCOPED_VALUE_PROP = "javax.security.jacc.PolicyContext.scopedValue";
+
+   /** the value returned by {@code orElse} when nothing is bound, as {@code orElse} may not accept null */
+   private static final Object UNBOUND = new Object();
+
+   /** {@code (Object)Object}: the {@code orElse} method of the scoped value */
+   private final MethodHandle orElse;
+
+   /** {@code (Object)Object}: the {@code ScopedValue.where} method, bound to the scoped value */
+   private final MethodHandle where;
+
+   /** {@code (Object,Runnable)void}: the {@code run} method of {@code ScopedValue.Carrier} */
+   private final MethodHandle run;
+
+   /**
+    * <p>
+    * Creates the scoped binding requested by the {@code javax.security.jacc.PolicyContext.scopedValue} system property.
+    * </p>
+    *
+    * @return the {@code ScopedValueBinding}, or {@code null} if the property is not set to {@code true}.
+    * @throws IllegalStateException
+    *            - if the property is set to {@code true} but the runtime does not provide {@code ScopedValue}.
+    */
+   static ScopedValueBinding create()
+   {
+      String enabled;
+      try
+      {
+         enabled = System.getProperty(SCOPED_VALUE_PROP);
+      }
+      catch (SecurityException e)
+      {
+         return null;
+      }
+      if (Boolean.parseBoolean(enabled) == false)
+         return null;
+      try
+      {
+         return new ScopedValueBinding();
+      }
+      catch (ReflectiveOperationException e)
+      {
+         // ScopedValue is not available on this runtime, or is a preview feature that is not enabled.
+         String msg = SCOPED_VALUE_PROP + " is true but java.lang.ScopedValue is not available";
+         throw new IllegalStateException(msg, e);
+      }
+   }
+
+   private ScopedValueBinding() throws ReflectiveOperationException
+   {
+      Class<?> type = Class.forName("java.lang.ScopedValue");
+      Class<?> carrier = Class.forName("java.lang.ScopedValue$Carrier");
+      Object scopedValue = type.getMethod("newInstance").invoke(null);
+      MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+      this.orElse = lookup.findVirtual(type, "orElse", MethodType.methodType(Object.class, Object.class))
+            .bindTo(scopedValue).asType(MethodType.methodType(Object.class, Object.class));
+      this.where = lookup.findStatic(type, "where", MethodType.methodType(carrier, type, Object.class))
+            .bindTo(scopedValue).asType(MethodType.methodType(Object.class, Object.class));
+      this.run = lookup.findVirtual(carrier, "run", MethodType.methodType(void.class, Runnable.class))
+            .asType(MethodType.methodType(void.class, Object.class, Runnable.class));
+   }
+
+   @Override
+   public Object current()
+   {
+      try
+      {
+         Object value = (Object) this.orElse.invokeExact(UNBOUND);
+         return value == UNBOUND ? null : value;
+      }
+      catch (Throwable t)
+      {
+         throw rethrow(t);
+      }
+   }
+
+   @Override
+   public void run(Object value, Runnable task)
+   {
+      try
+      {
+         Object carrier = (Object) this.where.invokeExact(value);
+         this.run.invokeExact(carrier, task);
+      }
+      catch (Throwable t)
+      {
+         throw rethrow(t);
+      }
+   }
+
+   private static RuntimeException rethrow(Throwable t)
+   {
+      if (t instanceof RuntimeException)
+         throw (RuntimeException) t;
+      if (t instanceof Error)
+         throw (Error) t;
+      throw new UndeclaredThrowableException(t);
+   }
+}
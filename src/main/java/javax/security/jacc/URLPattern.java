@@ -13,7 +13,7 @@ package javax.security.jacc;
  */
 class URLPattern
 {
-   private enum PatternType {
+   enum PatternType {
       /** the '/' pattern */
       DEFAULT,
       /** the '/*' pattern */
@@ -26,13 +26,17 @@ class URLPattern
       EXACT
    };
 
-   private String pattern;
+   private final String pattern;
 
-   private String ext;
+   private final String ext;
 
-   private int length;
+   private final String prefix;
 
-   private PatternType type;
+   private final int length;
+
+   private final PatternType type;
+
+   private final int hashCode;
 
    /**
     * <p>
@@ -53,12 +57,12 @@ class URLPattern
       else if (length > 0 && pattern.charAt(0) == '/' && pattern.endsWith("/*"))
          type = PatternType.PATH_PREFIX;
       else if (pattern.startsWith("*."))
-      {
          type = PatternType.EXTENSION;
-         ext = pattern.substring(1);
-      }
       else
          type = PatternType.EXACT;
+      ext = type == PatternType.EXTENSION ? pattern.substring(1) : null;
+      prefix = type == PatternType.PATH_PREFIX ? pattern.substring(0, length - 2) : null;
+      hashCode = pattern.hashCode();
    }
 
    /**
@@ -152,6 +156,30 @@ class URLPattern
       return this.pattern;
    }
 
+   /**
+    * <p>
+    * Obtains the type of this pattern.
+    * </p>
+    * 
+    * @return this pattern's {@code PatternType}.
+    */
+   PatternType getType()
+   {
+      return this.type;
+   }
+
+   /**
+    * <p>
+    * Obtains the path prefix of a '/.../*' pattern, that is, the pattern minus its last 2 characters.
+    * </p>
+    * 
+    * @return the path prefix of this pattern, or {@code null} if this is not a '/.../*' pattern.
+    */
+   String getPrefix()
+   {
+      return this.prefix;
+   }
+
    /**
     * <p>
     * Checks if this pattern is a default (i.e. '/') pattern.
@@ -208,7 +236,7 @@ class URLPattern
    @Override
    public int hashCode()
    {
-      return this.pattern.hashCode();
+      return this.hashCode;
    }
 
    /*
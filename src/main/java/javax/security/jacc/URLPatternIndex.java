@@ -0,0 +1,302 @@
+package javax.security.jacc;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * <p>
+ * An index of entries keyed by a {@code URLPattern}. Entries are stored according to the type of their pattern: exact
+ * patterns in a hash map, path-prefix patterns in a trie of path segments and extension patterns in a hash map keyed by
+ * the extension. Finding the entries whose pattern matches a given URL pattern {@code String} therefore costs roughly
+ * the length of that {@code String} instead of the number of indexed entries.
+ * </p>
+ *
+ * <p>
+ * Entries are visited in the order of specificity defined by the Servlet specification: exact patterns first, then
+ * path-prefix patterns from the longest to the shortest ("/*"), then extension patterns and finally the default pattern
+ * "/". The index is safe for concurrent use and lookups do not block.
+ * </p>
+ *
+ * @see URLPattern
+ */
+final class URLPatternIndex<E>
+{
+   /**
+    * <p>
+    * Callback used to visit the entries matching a URL pattern.
+    * </p>
+    */
+   interface Visitor<E>
+   {
+      /**
+       * <p>
+       * Visits an entry whose pattern matches the URL pattern being looked up.
+       * </p>
+       *
+       * @param pattern
+       *           the {@code URLPattern} the entry was indexed with.
+       * @param entry
+       *           the indexed entry.
+       * @return {@code true} to stop the visit; {@code false} to continue with the next matching entry.
+       */
+      boolean visit(URLPattern pattern, E entry);
+   }
+
+   private final ConcurrentMap<String, Bucket<E>> exactPatterns = new ConcurrentHashMap<String, Bucket<E>>();
+
+   private final ConcurrentMap<String, Bucket<E>> extensionPatterns = new ConcurrentHashMap<String, Bucket<E>>();
+
+   private final Node<E> prefixPatterns = new Node<E>();
+
+   private final Bucket<E> thePathPrefix = new Bucket<E>();
+
+   private final Bucket<E> defaultPattern = new Bucket<E>();
+
+   /**
+    * <p>
+    * Adds an entry to this index.
+    * </p>
+    *
+    * @param pattern
+    *           the {@code URLPattern} that selects the entry.
+    * @param entry
+    *           the entry to be added.
+    */
+   void add(URLPattern pattern, E entry)
+   {
+      String value = pattern.getPattern();
+      if (pattern.isDefault())
+         this.defaultPattern.add(pattern, entry);
+      else if (pattern.isExact())
+         bucket(this.exactPatterns, value).add(pattern, entry);
+      else if (pattern.isExtension())
+         bucket(this.extensionPatterns, value.substring(1)).add(pattern, entry);
+      else if (value.startsWith("/*"))
+         this.thePathPrefix.add(pattern, entry);
+      else
+      {
+         // a '/.../*' pattern: index the prefix (minus the trailing "/*") one path segment at a time.
+         String prefix = value.substring(0, value.length() - 2);
+         Node<E> node = this.prefixPatterns;
+         int from = 0;
+         while (from >= 0)
+         {
+            int end = prefix.indexOf('/', from);
+            String segment = end < 0 ? prefix.substring(from) : prefix.substring(from, end);
+            node = node.child(segment);
+            from = end < 0 ? -1 : end + 1;
+         }
+         node.entries.add(pattern, entry);
+      }
+   }
+
+   /**
+    * <p>
+    * Visits, in order of decreasing specificity, all entries whose {@code URLPattern} matches the specified URL pattern
+    * {@code String} according to {@link URLPattern#matches(String)}.
+    * </p>
+    *
+    * @param urlPattern
+    *           the URL pattern (or request path) to be matched.
+    * @param visitor
+    *           the {@code Visitor} that will be called for each matching entry.
+    * @return {@code true} if the visitor stopped the visit; {@code false} otherwise.
+    */
+   boolean visit(String urlPattern, Visitor<? super E> visitor)
+   {
+      // exact patterns.
+      Bucket<E> bucket = this.exactPatterns.get(urlPattern);
+      if (bucket != null && bucket.visit(visitor))
+         return true;
+
+      // path-prefix patterns, longest first.
+      if (visitPrefixes(this.prefixPatterns, urlPattern, 0, visitor))
+         return true;
+      if (this.thePathPrefix.visit(visitor))
+         return true;
+
+      // extension patterns: every extension starts with a '.'.
+      if (this.extensionPatterns.isEmpty() == false)
+      {
+         int dot = urlPattern.indexOf('.');
+         while (dot >= 0)
+         {
+            bucket = this.extensionPatterns.get(urlPattern.substring(dot));
+            if (bucket != null && bucket.visit(visitor))
+               return true;
+            dot = urlPattern.indexOf('.', dot + 1);
+         }
+      }
+
+      // the default pattern.
+      return this.defaultPattern.visit(visitor);
+   }
+
+   /**
+    * <p>
+    * Obtains the entry whose {@code URLPattern} is the most specific match for the specified URL pattern {@code
+    * String}. This is the first entry that {@link #visit(String, Visitor)} would visit.
+    * </p>
+    *
+    * @param urlPattern
+    *           the URL pattern (or request path) to be matched.
+    * @return the most specific matching entry, or {@code null} if no entry matches.
+    */
+   E first(String urlPattern)
+   {
+      Bucket<E> bucket = this.exactPatterns.get(urlPattern);
+      if (bucket != null && bucket.isEmpty() == false)
+         return bucket.first();
+
+      bucket = longestPrefix(this.prefixPatterns, urlPattern, 0);
+      if (bucket != null)
+         return bucket.first();
+      if (this.thePathPrefix.isEmpty() == false)
+         return this.thePathPrefix.first();
+
+      if (this.extensionPatterns.isEmpty() == false)
+      {
+         int dot = urlPattern.indexOf('.');
+         while (dot >= 0)
+         {
+            bucket = this.extensionPatterns.get(urlPattern.substring(dot));
+            if (bucket != null && bucket.isEmpty() == false)
+               return bucket.first();
+            dot = urlPattern.indexOf('.', dot + 1);
+         }
+      }
+
+      return this.defaultPattern.isEmpty() ? null : this.defaultPattern.first();
+   }
+
+   /**
+    * <p>
+    * Checks if this index has no entries.
+    * </p>
+    *
+    * @return {@code true} if no entries have been added to this index; {@code false} otherwise.
+    */
+   boolean isEmpty()
+   {
+      return this.exactPatterns.isEmpty() && this.extensionPatterns.isEmpty() && this.prefixPatterns.isEmpty()
+            && this.thePathPrefix.isEmpty() && this.defaultPattern.isEmpty();
+   }
+
+   private static <E> boolean visitPrefixes(Node<E> node, String urlPattern, int from, Visitor<? super E> visitor)
+   {
+      if (from < 0 || node.children.isEmpty())
+         return false;
+      int end = urlPattern.indexOf('/', from);
+      String segment = end < 0 ? urlPattern.substring(from) : urlPattern.substring(from, end);
+      Node<E> child = node.children.get(segment);
+      if (child == null)
+         return false;
+      // deeper (longer) prefixes are more specific, so visit them first.
+      if (visitPrefixes(child, urlPattern, end < 0 ? -1 : end + 1, visitor))
+         return true;
+      return child.entries.visit(visitor);
+   }
+
+   private static <E> Bucket<E> longestPrefix(Node<E> node, String urlPattern, int from)
+   {
+      if (from < 0 || node.children.isEmpty())
+         return null;
+      int end = urlPattern.indexOf('/', from);
+      String segment = end < 0 ? urlPattern.substring(from) : urlPattern.substring(from, end);
+      Node<E> child = node.children.get(segment);
+      if (child == null)
+         return null;
+      Bucket<E> longest = longestPrefix(child, urlPattern, end < 0 ? -1 : end + 1);
+      if (longest == null && child.entries.isEmpty() == false)
+         longest = child.entries;
+      return longest;
+   }
+
+   private static <E> Bucket<E> bucket(ConcurrentMap<String, Bucket<E>> map, String key)
+   {
+      Bucket<E> bucket = map.get(key);
+      if (bucket == null)
+      {
+         bucket = new Bucket<E>();
+         Bucket<E> existing = map.putIfAbsent(key, bucket);
+         if (existing != null)
+            bucket = existing;
+      }
+      return bucket;
+   }
+
+   /**
+    * <p>
+    * The entries indexed under the same key, together with the patterns they were added with.
+    * </p>
+    */
+   private static final class Bucket<E>
+   {
+      private final List<URLPattern> patterns = new CopyOnWriteArrayList<URLPattern>();
+
+      private final List<E> entries = new CopyOnWriteArrayList<E>();
+
+      private volatile int size;
+
+      synchronized void add(URLPattern pattern, E entry)
+      {
+         this.patterns.add(pattern);
+         this.entries.add(entry);
+         this.size++;
+      }
+
+      boolean visit(Visitor<? super E> visitor)
+      {
+         // only look at the first size elements, which are guaranteed to be in both lists.
+         int size = this.size;
+         for (int i = 0; i < size; i++)
+         {
+            if (visitor.visit(this.patterns.get(i), this.entries.get(i)))
+               return true;
+         }
+         return false;
+      }
+
+      E first()
+      {
+         return this.entries.get(0);
+      }
+
+      boolean isEmpty()
+      {
+         return this.size == 0;
+      }
+   }
+
+   /**
+    * <p>
+    * A node in the path-prefix trie. Each node represents one path segment.
+    * </p>
+    */
+   private static final class Node<E>
+   {
+      private final ConcurrentMap<String, Node<E>> children = new ConcurrentHashMap<String, Node<E>>();
+
+      private final Bucket<E> entries = new Bucket<E>();
+
+      Node<E> child(String segment)
+      {
+         Node<E> child = this.children.get(segment);
+         if (child == null)
+         {
+            child = new Node<E>();
+            Node<E> existing = this.children.putIfAbsent(segment, child);
+            if (existing != null)
+               child = existing;
+         }
+         return child;
+      }
+
+      boolean isEmpty()
+      {
+         return this.children.isEmpty() && this.entries.isEmpty();
+      }
+   }
+}
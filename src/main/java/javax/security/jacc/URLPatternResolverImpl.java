@@ -0,0 +1,53 @@
+package javax.security.jacc;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.jboss.jacc.URLPatternResolver;
+
+/**
+ * <p>
+ * The {@code URLPatternResolver} of this package, which indexes the URL patterns with the {@code URLPatternIndex} used
+ * by the web permissions.
+ * </p>
+ *
+ * @see URLPatternResolver#newInstance(Collection)
+ */
+final class URLPatternResolverImpl extends URLPatternResolver
+{
+   private final URLPatternIndex<URLPattern> index = new URLPatternIndex<URLPattern>();
+
+   /**
+    * <p>
+    * Creates a new {@code URLPatternResolverImpl} for the specified URL patterns.
+    * </p>
+    *
+    * @param urlPatterns
+    *           - the URL patterns to be resolved against. Duplicate patterns are ignored. The value of this parameter
+    *           must not be null.
+    */
+   URLPatternResolverImpl(Collection<String> urlPatterns)
+   {
+      if (urlPatterns == null)
+         throw new IllegalArgumentException("The URL patterns may not be null");
+      Set<String> added = new HashSet<String>();
+      for (String urlPattern : urlPatterns)
+      {
+         if (urlPattern == null)
+            throw new IllegalArgumentException("A URL pattern may not be null");
+         if (added.add(urlPattern))
+         {
+            URLPattern pattern = new URLPattern(urlPattern);
+            this.index.add(pattern, pattern);
+         }
+      }
+   }
+
+   @Override
+   public String resolve(String path)
+   {
+      URLPattern pattern = this.index.first(path);
+      return pattern == null ? null : pattern.getPattern();
+   }
+}
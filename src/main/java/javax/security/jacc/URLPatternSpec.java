@@ -1,5 +1,7 @@
 package javax.security.jacc;
 
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashSet;
 
 /**
@@ -15,11 +17,39 @@ import java.util.HashSet;
  */
 class URLPatternSpec
 {
+   /** The maximum number of parsed specifications kept by the cache */
+   private static final int MAX_CACHED_SPECS = 1024;
+
+   /** The cache of parsed specifications, keyed by their String representation */
+   private static final BoundedCache<String, URLPatternSpec> cache = new BoundedCache<String, URLPatternSpec>(
+         MAX_CACHED_SPECS);
+
    /** The first or only URLPattern in the specification */
-   URLPattern urlPattern;
+   final URLPattern urlPattern;
+
+   /**
+    * The URLPatternList of the specification sorted by pattern type and then by pattern value, or null if the
+    * specification only has a first URLPattern.
+    */
+   final URLPattern[] urlPatternList;
+
+   /** The values of the URLPatternList patterns in ascending lexical order, or null if there is no URLPatternList */
+   private final String[] urlPatternValues;
 
-   /** */
-   HashSet<URLPattern> urlPatternList;
+   /** The hash code of this specification, computed once all the patterns are known */
+   private final int hashCode;
+
+   /** Orders URLPatterns by type (non exact types first) and then by value */
+   private static final Comparator<URLPattern> PATTERN_ORDER = new Comparator<URLPattern>()
+   {
+      public int compare(URLPattern p1, URLPattern p2)
+      {
+         int result = p1.getType().compareTo(p2.getType());
+         if (result == 0)
+            result = p1.getPattern().compareTo(p2.getPattern());
+         return result;
+      }
+   };
 
    /**
     * <p>
@@ -59,81 +89,117 @@ class URLPatternSpec
    URLPatternSpec(String spec)
    {
       if (spec == null)
+      {
          this.urlPattern = new URLPattern("/");
+         this.urlPatternList = null;
+         this.urlPatternValues = null;
+      }
       else if (spec.indexOf(":") > 0)
       {
          String[] patterns = spec.split(":");
-         this.urlPatternList = new HashSet<URLPattern>();
-         for (String pattern : patterns)
+         this.urlPattern = new URLPattern(patterns[0]);
+         HashSet<URLPattern> urlPatternList = new HashSet<URLPattern>();
+         for (int i = 1; i < patterns.length; i++)
          {
+            String pattern = patterns[i];
             URLPattern p = new URLPattern(pattern);
-            if (this.urlPattern == null)
-               this.urlPattern = p;
-            else
+            // Enforce the constraints
+            if (p.matches(this.urlPattern))
+            {
+               /*
+                * No pattern may exist in the URLPatternList that matches the first pattern.
+                */
+               String msg = "1: URLPatternList item: " + pattern + " matches: " + this.urlPattern.getPattern();
+               throw new IllegalArgumentException(msg);
+            }
+            else if (this.urlPattern.isPrefix())
             {
-               // Enforce the constraints
-               if (p.matches(this.urlPattern))
+               /*
+                * If the first pattern is a path-prefix pattern, only exact patterns matched by the first pattern and
+                * path-prefix patterns matched by, but different from, the first pattern may occur in the
+                * URLPatternList.
+                */
+               if (p.isPrefix() == false && p.isExact() == false)
                {
-                  /*
-                   * No pattern may exist in the URLPatternList that matches the first pattern.
-                   */
-                  String msg = "1: URLPatternList item: " + pattern + " matches: " + this.urlPattern.getPattern();
+                  String msg = "2: URLPatternList item: " + pattern + " is not an exact or prefix pattern";
                   throw new IllegalArgumentException(msg);
                }
-               else if (this.urlPattern.isPrefix())
-               {
-                  /*
-                   * If the first pattern is a path-prefix pattern, only exact patterns matched by the first pattern and
-                   * path-prefix patterns matched by, but different from, the first pattern may occur in the
-                   * URLPatternList.
-                   */
-                  if (p.isPrefix() == false && p.isExact() == false)
-                  {
-                     String msg = "2: URLPatternList item: " + pattern + " is not an exact or prefix pattern";
-                     throw new IllegalArgumentException(msg);
-                  }
-               }
-               else if (this.urlPattern.isExtension())
-               {
-                  /*
-                   * If the first pattern is an extension pattern, only exact patterns that are matched by the first
-                   * pattern and path-prefix patterns may occur in the URLPatternList.
-                   */
-                  if (p.isPrefix() == false && p.isExact() == false)
-                  {
-                     String msg = "3: URLPatternList item: " + pattern + " is not an exact or prefix pattern";
-                     throw new IllegalArgumentException(msg);
-                  }
-               }
-               else if (this.urlPattern.isDefault())
+            }
+            else if (this.urlPattern.isExtension())
+            {
+               /*
+                * If the first pattern is an extension pattern, only exact patterns that are matched by the first
+                * pattern and path-prefix patterns may occur in the URLPatternList.
+                */
+               if (p.isPrefix() == false && p.isExact() == false)
                {
-                  /*
-                   * If the first pattern is the default pattern, "/", any pattern except the default pattern may occur
-                   * in the URLPatternList.
-                   */
-                  if (p.isDefault())
-                  {
-                     String msg = "4: URLPatternList item: " + pattern + " cannot be the default pattern";
-                     throw new IllegalArgumentException(msg);
-                  }
+                  String msg = "3: URLPatternList item: " + pattern + " is not an exact or prefix pattern";
+                  throw new IllegalArgumentException(msg);
                }
-               else if (this.urlPattern.isExact())
+            }
+            else if (this.urlPattern.isDefault())
+            {
+               /*
+                * If the first pattern is the default pattern, "/", any pattern except the default pattern may occur
+                * in the URLPatternList.
+                */
+               if (p.isDefault())
                {
-                  /*
-                   * If the first pattern is an exact pattern a URLPatternList must not be present in the
-                   * URLPatternSpec.
-                   */
-                  String msg = "5: URLPatternList item: " + pattern + " is not allowed in an exact pattern";
+                  String msg = "4: URLPatternList item: " + pattern + " cannot be the default pattern";
                   throw new IllegalArgumentException(msg);
                }
-               this.urlPatternList.add(p);
             }
+            else if (this.urlPattern.isExact())
+            {
+               /*
+                * If the first pattern is an exact pattern a URLPatternList must not be present in the
+                * URLPatternSpec.
+                */
+               String msg = "5: URLPatternList item: " + pattern + " is not allowed in an exact pattern";
+               throw new IllegalArgumentException(msg);
+            }
+            urlPatternList.add(p);
          }
+
+         // sort the (duplicate free) list so that containment checks can use binary searches.
+         this.urlPatternList = urlPatternList.toArray(new URLPattern[urlPatternList.size()]);
+         Arrays.sort(this.urlPatternList, PATTERN_ORDER);
+         this.urlPatternValues = new String[this.urlPatternList.length];
+         for (int i = 0; i < this.urlPatternList.length; i++)
+            this.urlPatternValues[i] = this.urlPatternList[i].getPattern();
+         Arrays.sort(this.urlPatternValues);
       }
       else
       {
          this.urlPattern = new URLPattern(spec);
+         this.urlPatternList = null;
+         this.urlPatternValues = null;
       }
+      this.hashCode = computeHashCode();
+   }
+
+   /**
+    * <p>
+    * Obtains the {@code URLPatternSpec} for the specified {@code String} representation. {@code URLPatternSpec}
+    * instances are immutable, so the parsed specifications are cached and shared by all permissions constructed with
+    * the same name. The cache is bounded and evicts the specifications that are not looked up again, so the names of
+    * the permissions built from request paths do not displace the specifications of the policy statements.
+    * </p>
+    * 
+    * @param spec
+    *           the {@code String} representation of the {@code URLPatternSpec} as defined by the JACC specification.
+    * @return the (possibly shared) {@code URLPatternSpec} instance.
+    * @throws IllegalArgumentException
+    *            if the specification is not valid.
+    */
+   static URLPatternSpec valueOf(String spec)
+   {
+      if (spec == null)
+         spec = "/";
+      URLPatternSpec urlSpec = cache.get(spec);
+      if (urlSpec == null)
+         urlSpec = cache.putIfAbsent(spec, new URLPatternSpec(spec));
+      return urlSpec;
    }
 
    /**
@@ -181,40 +247,25 @@ class URLPatternSpec
        * this permission.
        */
       boolean implies = this.urlPattern.matches(spec.urlPattern);
-      if (implies)
+      if (implies && this.urlPatternList != null)
       {
          /*
           * The first URLPattern in the name of the argument permission is NOT matched by any URLPattern in the
           * URLPatternList of the URLPatternSpec of this permission.
           */
-         if (this.urlPatternList != null)
-         {
-            for (URLPattern p : this.urlPatternList)
-            {
-               if (p.matches(spec.urlPattern))
-                  return false;
-            }
-         }
+         if (listMatches(spec.urlPattern.getPattern()))
+            return false;
 
          /*
           * If the first URLPattern in the name of the argument permission matches the first URLPattern in the
           * URLPatternSpec of this permission, then every URLPattern in the URLPatternList of the URLPatternSpec of this
           * permission is matched by a URLPattern in the URLPatternList of the argument permission.
           */
-         if (this.urlPatternList != null && spec.urlPatternList != null)
+         if (spec.urlPatternList != null)
          {
             for (URLPattern p : this.urlPatternList)
             {
-               boolean hasMatch = false;
-               for (URLPattern p2 : spec.urlPatternList)
-               {
-                  if (p.matches(p2))
-                  {
-                     hasMatch = true;
-                     break;
-                  }
-               }
-               if (hasMatch == false)
+               if (spec.listMatchedBy(p) == false)
                   return false;
             }
          }
@@ -222,6 +273,90 @@ class URLPatternSpec
       return implies;
    }
 
+   /**
+    * <p>
+    * Checks if this specification implies the single exact {@code URLPatternSpec} formed by the specified request
+    * path: the first {@code URLPattern} of this specification matches the path, and no {@code URLPattern} in its
+    * {@code URLPatternList} does.
+    * </p>
+    * 
+    * @param path
+    *           the context relative request path, with colons escaped.
+    * @return {@code true} if this specification implies the path; {@code false} otherwise.
+    */
+   boolean impliesPath(String path)
+   {
+      return this.urlPattern.matches(path) && (this.urlPatternList == null || listMatches(path) == false);
+   }
+
+   /**
+    * <p>
+    * Checks if a {@code URLPattern} in the {@code URLPatternList} of this specification matches the specified pattern
+    * value.
+    * </p>
+    * 
+    * @param value
+    *           the pattern value to be matched.
+    * @return {@code true} if a pattern in the {@code URLPatternList} matches the value; {@code false} otherwise.
+    */
+   private boolean listMatches(String value)
+   {
+      // an exact pattern only matches an equal value, and any pattern with an equal value matches it.
+      if (Arrays.binarySearch(this.urlPatternValues, value) >= 0)
+         return true;
+      // the remaining (non exact) patterns sort first and are matched one at a time.
+      for (URLPattern p : this.urlPatternList)
+      {
+         if (p.isExact())
+            break;
+         if (p.matches(value))
+            return true;
+      }
+      return false;
+   }
+
+   /**
+    * <p>
+    * Checks if the specified {@code URLPattern} matches at least one {@code URLPattern} in the {@code URLPatternList}
+    * of this specification.
+    * </p>
+    * 
+    * @param p
+    *           the {@code URLPattern} to be matched against the {@code URLPatternList}.
+    * @return {@code true} if the pattern matches a pattern in the {@code URLPatternList}; {@code false} otherwise.
+    */
+   private boolean listMatchedBy(URLPattern p)
+   {
+      String[] values = this.urlPatternValues;
+      switch (p.getType())
+      {
+         case DEFAULT :
+         case THE_PATH_PREFIX :
+            return values.length > 0;
+         case EXACT :
+            return Arrays.binarySearch(values, p.getPattern()) >= 0;
+         case PATH_PREFIX :
+            // the values starting with the prefix are adjacent in lexical order.
+            String prefix = p.getPrefix();
+            int index = Arrays.binarySearch(values, prefix);
+            if (index < 0)
+               index = -index - 1;
+            for (; index < values.length && values[index].startsWith(prefix); index++)
+            {
+               if (p.matches(values[index]))
+                  return true;
+            }
+            return false;
+         default :
+            for (String value : values)
+            {
+               if (p.matches(value))
+                  return true;
+            }
+            return false;
+      }
+   }
+
    /*
     * (non-Javadoc)
     * 
@@ -229,11 +364,22 @@ class URLPatternSpec
     */
    @Override
    public int hashCode()
+   {
+      return this.hashCode;
+   }
+
+   private int computeHashCode()
    {
       int result = 17;
       result = 37 * result + this.urlPattern.hashCode();
       if (this.urlPatternList != null)
-         result = 37 * result + this.urlPatternList.hashCode();
+      {
+         // same value as the hash code of a java.util.Set holding the patterns.
+         int listHash = 0;
+         for (URLPattern p : this.urlPatternList)
+            listHash += p.hashCode();
+         result = 37 * result + listHash;
+      }
       return result;
    }
 
@@ -248,9 +394,11 @@ class URLPatternSpec
       if (obj instanceof URLPatternSpec == false)
          return false;
       URLPatternSpec other = (URLPatternSpec) obj;
+      if (this.hashCode != other.hashCode)
+         return false;
       if (this.urlPattern.equals(other.urlPattern) == true)
       {
-         if (this.urlPatternList == null || this.urlPatternList.equals(other.urlPatternList))
+         if (this.urlPatternList == null || Arrays.equals(this.urlPatternList, other.urlPatternList))
          {
             return true;
          }
@@ -6,7 +6,8 @@ import java.io.ObjectOutputStream;
 import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.security.Permission;
-import java.util.TreeSet;
+import java.security.PermissionCollection;
+import java.util.Objects;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -29,14 +30,12 @@ import javax.servlet.http.HttpServletRequest;
  * @author <a href="mailto:sguilhen@redhat.com">Stefan Guilhen</a>
  * @see java.security.Permission
  */
-@SuppressWarnings({"unchecked", "unused"})
+@SuppressWarnings("unused")
 public final class WebResourcePermission extends Permission implements Serializable
 {
    /** @since 4.0.2 */
    private static final long serialVersionUID = 1;
 
-   private static TreeSet<String> ALL_HTTP_METHODS = new TreeSet<String>();
-
    static final String ENCODED_COLON = "%3A";
    
    /**
@@ -44,27 +43,19 @@ public final class WebResourcePermission extends Permission implements Serializa
     */
    private static final ObjectStreamField[] serialPersistentFields = {new ObjectStreamField("actions", String.class)};
 
-   static
-   {
-      ALL_HTTP_METHODS.add("GET");
-      ALL_HTTP_METHODS.add("POST");
-      ALL_HTTP_METHODS.add("PUT");
-      ALL_HTTP_METHODS.add("DELETE");
-      ALL_HTTP_METHODS.add("HEAD");
-      ALL_HTTP_METHODS.add("OPTIONS");
-      ALL_HTTP_METHODS.add("TRACE");
-   }
-
    private transient URLPatternSpec urlSpec;
 
-   private transient TreeSet<String> httpMethods;
+   private transient HTTPMethodSet httpMethods;
 
    private transient String httpMethodsString;
 
-   private transient TreeSet<String> httpExceptionList;
+   private transient HTTPMethodSet httpExceptionList;
 
    private transient String httpExceptionString;
 
+   /** the cached hash code, computed on first use */
+   private transient int hashCode;
+
    /**
     * <p>
     * Creates a new WebResourcePermission from the HttpServletRequest object.
@@ -81,7 +72,7 @@ public final class WebResourcePermission extends Permission implements Serializa
     */
    public WebResourcePermission(HttpServletRequest request)
    {
-      this(requestURI(request), request.getMethod());
+      this(requestURI(request), HTTPMethodSet.valueOfMethod(request.getMethod()));
    }
 
    /**
@@ -168,7 +159,7 @@ public final class WebResourcePermission extends Permission implements Serializa
       super(name == null ? "/" : name);
       if (name == null)
          name = "/";
-      this.urlSpec = new URLPatternSpec(name);
+      this.urlSpec = URLPatternSpec.valueOf(name);
       parseActions(actions);
    }
 
@@ -193,10 +184,27 @@ public final class WebResourcePermission extends Permission implements Serializa
    public WebResourcePermission(String urlPatternSpec, String[] httpMethods)
    {
       super(urlPatternSpec);
-      this.urlSpec = new URLPatternSpec(urlPatternSpec);
-      Object[] methodInfo = canonicalMethods(httpMethods);
-      this.httpMethods = (TreeSet<String>) methodInfo[0];
-      this.httpMethodsString = (String) methodInfo[1];
+      this.urlSpec = URLPatternSpec.valueOf(urlPatternSpec);
+      this.httpMethods = HTTPMethodSet.valueOf(httpMethods);
+      this.httpMethodsString = this.httpMethods.getActions();
+   }
+
+   /**
+    * <p>
+    * Creates a new WebResourcePermission with the specified name and an already canonicalized set of HTTP methods.
+    * </p>
+    * 
+    * @param name
+    *           - the URLPatternSpec that identifies the web resources to which the permission pertains.
+    * @param httpMethods
+    *           - the HTTP methods to which the permission pertains.
+    */
+   private WebResourcePermission(String name, HTTPMethodSet httpMethods)
+   {
+      super(name);
+      this.urlSpec = new URLPatternSpec(name);
+      this.httpMethods = httpMethods;
+      this.httpMethodsString = httpMethods.getActions();
    }
 
    /**
@@ -223,6 +231,10 @@ public final class WebResourcePermission extends Permission implements Serializa
          return false;
       WebResourcePermission perm = (WebResourcePermission) p;
 
+      // permissions with the same canonical URLPatternSpec and HTTP methods are equivalent
+      if (this == perm || hasSameCanonicalForm(perm))
+         return true;
+
       // Two permissions p1 and p2 are equivalent if and only if p1.implies(p2) and p2.implies(p1)
       return this.implies(perm) && perm.implies(this);
    }
@@ -264,10 +276,15 @@ public final class WebResourcePermission extends Permission implements Serializa
    @Override
    public int hashCode()
    {
-      int hashCode = 17;
-      hashCode = 37 * hashCode + this.urlSpec.hashCode();
-      if (this.httpMethods != null)
-         hashCode = 37 * hashCode + this.httpMethods.hashCode();
+      int hashCode = this.hashCode;
+      if (hashCode == 0)
+      {
+         hashCode = 17;
+         hashCode = 37 * hashCode + this.urlSpec.hashCode();
+         if (this.httpMethods != null)
+            hashCode = 37 * hashCode + this.httpMethods.hashCode();
+         this.hashCode = hashCode;
+      }
       return hashCode;
    }
 
@@ -320,16 +337,54 @@ public final class WebResourcePermission extends Permission implements Serializa
       // Check the URL patterns
       boolean implies = this.urlSpec.implies(perm.urlSpec);
       if (implies == true)
-      {
-         if (this.httpExceptionList != null)
-            implies = matchExceptionList(this.httpExceptionList, perm.httpMethods);
-         // Check the http methods
-         if (this.httpMethods != null && perm.httpMethods != null)
-            implies = this.httpMethods.containsAll(perm.httpMethods);
-      }
+         implies = impliesMethods(perm.httpMethods);
       return implies;
    }
 
+   /**
+    * <p>
+    * Determines if this permission implies the permission that would be constructed for a request to the specified
+    * context relative path with the specified HTTP methods, without constructing that permission.
+    * </p>
+    * 
+    * @param path
+    *           - the context relative request path, with colons escaped.
+    * @param methods
+    *           - the HTTP methods of the request.
+    * @return true if the request permission is implied by this object, false if not.
+    */
+   boolean impliesRequest(String path, HTTPMethodSet methods)
+   {
+      return this.urlSpec.impliesPath(path) && impliesMethods(methods);
+   }
+
+   /**
+    * <p>
+    * Returns a new {@code PermissionCollection} for storing {@code WebResourcePermission} objects. The returned
+    * collection indexes the permissions by the first {@code URLPattern} of their {@code URLPatternSpec}, so that
+    * {@code implies} only evaluates the permissions whose first pattern matches the argument permission.
+    * </p>
+    * 
+    * @return a new {@code PermissionCollection} suitable for storing {@code WebResourcePermission} objects.
+    */
+   @Override
+   public PermissionCollection newPermissionCollection()
+   {
+      return new WebResourcePermissionCollection();
+   }
+
+   /**
+    * <p>
+    * Obtains the {@code URLPatternSpec} that identifies the web resources to which this permission pertains.
+    * </p>
+    * 
+    * @return this permission's {@code URLPatternSpec}.
+    */
+   URLPatternSpec getURLPatternSpec()
+   {
+      return this.urlSpec;
+   }
+
    /**
     * <p>
     * Build a permission name from the substring of the {@code HttpServletRequest.getRequestURI()}) that begins after
@@ -344,91 +399,69 @@ public final class WebResourcePermission extends Permission implements Serializa
    static String requestURI(HttpServletRequest request)
    {
       String uri = request.getRequestURI();
-      if (uri != null)
-      {
-         String contextPath = request.getContextPath();
-         int length = contextPath == null ? 0 : contextPath.length();
-         if (length > 0)
-         {
-            uri = uri.substring(length);
-         }
-         if (uri.equals("/"))
-         {
-            uri = "";
-         }
-      }
-      else
+      if (uri == null)
+         return "";
+      String contextPath = request.getContextPath();
+      int start = contextPath == null ? 0 : contextPath.length();
+      int end = uri.length();
+      if (end - start == 1 && uri.charAt(start) == '/')
+         return "";
+
+      // according to the JACC specification, all colons within the request URI must be escaped.
+      int colon = uri.indexOf(':', start);
+      if (colon < 0)
+         return start == 0 ? uri : uri.substring(start);
+      StringBuilder escaped = new StringBuilder(end - start + 2 * ENCODED_COLON.length());
+      int from = start;
+      while (colon >= 0)
       {
-         uri = "";
+         escaped.append(uri, from, colon).append(ENCODED_COLON);
+         from = colon + 1;
+         colon = uri.indexOf(':', from);
       }
-      
-      // according to the JACC specification, all colons within the request URI must be escaped.
-      if (uri.indexOf(':') > 0)
-         uri = uri.replaceAll(":", ENCODED_COLON);
-      return uri;
+      escaped.append(uri, from, end);
+      return escaped.toString();
    }
 
-   static Object[] canonicalMethods(String methods)
-   {
-      String[] methodsArray = null;
-      if (methods != null && methods.length() > 0)
-         methodsArray = methods.split(",");
-
-      return canonicalMethods(methodsArray);
-   }
-
-   static Object[] canonicalMethods(String[] methods)
+   // Private -------------------------------------------------------
+   private boolean impliesMethods(HTTPMethodSet methods)
    {
-      // add the HTTP methods to a set to remove duplicates.
-      TreeSet<String> actions = new TreeSet<String>();
-      if (methods != null)
-      {
-         for (String method : methods)
-            actions.add(method);
-      }
-      return canonicalMethods(actions);
+      boolean implies = true;
+      if (this.httpExceptionList != null)
+         implies = matchExceptionList(this.httpExceptionList, methods);
+      // Check the http methods
+      if (this.httpMethods != null && methods != null)
+         implies = this.httpMethods.containsAll(methods);
+      return implies;
    }
 
-   static Object[] canonicalMethods(TreeSet<String> actions)
+   private boolean hasSameCanonicalForm(WebResourcePermission perm)
    {
-      Object[] info = {ALL_HTTP_METHODS, null};
-      if (actions.equals(ALL_HTTP_METHODS) || actions.size() == 0)
-         return info;
-
-      info[0] = actions;
-      StringBuffer tmp = new StringBuffer();
-      for (String action : actions)
-      {
-         tmp.append(action);
-         tmp.append(',');
-      }
-      if (tmp.length() > 0)
-         tmp.setLength(tmp.length() - 1);
-      info[1] = tmp.toString();
-      return info;
+      return this.hashCode() == perm.hashCode() && this.urlSpec.equals(perm.urlSpec)
+            && Objects.equals(this.httpMethods, perm.httpMethods)
+            && Objects.equals(this.httpExceptionList, perm.httpExceptionList);
    }
 
-   // Private -------------------------------------------------------
    private void parseActions(String actions)
    {
       boolean exclusionListNeeded = actions != null && actions.startsWith("!");
       if (exclusionListNeeded)
          actions = actions.substring(1);
 
-      Object[] methodInfo = canonicalMethods(actions);
+      HTTPMethodSet methods = HTTPMethodSet.valueOf(actions);
       if (exclusionListNeeded)
       {
-         this.httpExceptionList = (TreeSet<String>) methodInfo[0];
-         this.httpExceptionString = (String) methodInfo[1];
+         this.httpExceptionList = methods;
+         this.httpExceptionString = methods.getActions();
       }
       else
       {
-         this.httpMethods = (TreeSet<String>) methodInfo[0];
-         this.httpMethodsString = (String) methodInfo[1];
+         this.httpMethods = methods;
+         this.httpMethodsString = methods.getActions();
       }
    }
 
-   static boolean matchExceptionList(TreeSet<String> myExceptionList, TreeSet<String> matchingExceptionList)
+   static boolean matchExceptionList(HTTPMethodSet myExceptionList, HTTPMethodSet matchingExceptionList)
    {
       boolean bothnull = (myExceptionList == null && matchingExceptionList == null);
       boolean onenull = (myExceptionList == null && matchingExceptionList != null)
@@ -439,19 +472,15 @@ public final class WebResourcePermission extends Permission implements Serializa
       if (onenull)
          return false;
 
-      // matchingExceptionList must be a superset of myExceptionList
-      for (String httpMethod : myExceptionList)
-      {
-         if (matchingExceptionList.contains(httpMethod))
-            return false;
-      }
-      return true;
+      // none of the methods in myExceptionList may occur in matchingExceptionList
+      return myExceptionList.intersects(matchingExceptionList) == false;
    }
 
    private void readObject(ObjectInputStream ois) throws ClassNotFoundException, IOException
    {
       ObjectInputStream.GetField fields = ois.readFields();
       String actions = (String) fields.get("actions", null);
+      this.urlSpec = URLPatternSpec.valueOf(getName());
       parseActions(actions);
    }
 
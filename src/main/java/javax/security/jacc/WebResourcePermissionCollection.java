@@ -0,0 +1,108 @@
+package javax.security.jacc;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.security.Permission;
+import java.security.PermissionCollection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * <p>
+ * A {@code PermissionCollection} of {@code WebResourcePermission} objects. The permissions are indexed by the first
+ * {@code URLPattern} of their {@code URLPatternSpec}, so {@code implies} only evaluates the permissions whose first
+ * pattern matches the first pattern of the argument permission instead of scanning the whole collection.
+ * </p>
+ *
+ * @see WebResourcePermission#newPermissionCollection()
+ */
+final class WebResourcePermissionCollection extends PermissionCollection
+{
+   private static final long serialVersionUID = 1;
+
+   private final List<WebResourcePermission> permissions = new ArrayList<WebResourcePermission>();
+
+   private transient URLPatternIndex<WebResourcePermission> index = new URLPatternIndex<WebResourcePermission>();
+
+   /**
+    * <p>
+    * Adds a {@code WebResourcePermission} to this collection.
+    * </p>
+    *
+    * @param permission
+    *           the {@code WebResourcePermission} to be added.
+    * @throws IllegalArgumentException
+    *            if the permission is not a {@code WebResourcePermission}.
+    * @throws SecurityException
+    *            if this collection has been marked read-only.
+    */
+   @Override
+   public void add(Permission permission)
+   {
+      if (permission instanceof WebResourcePermission == false)
+         throw new IllegalArgumentException("Invalid permission type: " + permission);
+      if (isReadOnly())
+         throw new SecurityException("Cannot add a permission to a read-only PermissionCollection");
+      WebResourcePermission perm = (WebResourcePermission) permission;
+      synchronized (this)
+      {
+         this.permissions.add(perm);
+         this.index.add(perm.getURLPatternSpec().urlPattern, perm);
+      }
+   }
+
+   /**
+    * <p>
+    * Checks if the specified permission is implied by one of the {@code WebResourcePermission} objects held in this
+    * collection.
+    * </p>
+    *
+    * @param permission
+    *           the {@code Permission} to be checked.
+    * @return {@code true} if the permission is implied by this collection; {@code false} otherwise.
+    */
+   @Override
+   public boolean implies(Permission permission)
+   {
+      if (permission instanceof WebResourcePermission == false)
+         return false;
+      final WebResourcePermission perm = (WebResourcePermission) permission;
+      return this.index.visit(perm.getURLPatternSpec().urlPattern.getPattern(),
+            new URLPatternIndex.Visitor<WebResourcePermission>()
+            {
+               public boolean visit(URLPattern pattern, WebResourcePermission entry)
+               {
+                  return entry.implies(perm);
+               }
+            });
+   }
+
+   /**
+    * <p>
+    * Returns an enumeration of the {@code WebResourcePermission} objects held in this collection.
+    * </p>
+    *
+    * @return an {@code Enumeration} of the permissions in this collection.
+    */
+   @Override
+   public synchronized Enumeration<Permission> elements()
+   {
+      return Collections.enumeration(new ArrayList<Permission>(this.permissions));
+   }
+
+   private void readObject(ObjectInputStream ois) throws ClassNotFoundException, IOException
+   {
+      ois.defaultReadObject();
+      this.index = new URLPatternIndex<WebResourcePermission>();
+      for (WebResourcePermission perm : this.permissions)
+         this.index.add(perm.getURLPatternSpec().urlPattern, perm);
+   }
+
+   private synchronized void writeObject(ObjectOutputStream oos) throws IOException
+   {
+      oos.defaultWriteObject();
+   }
+}
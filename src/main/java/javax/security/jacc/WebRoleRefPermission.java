@@ -2,6 +2,7 @@ package javax.security.jacc;
 
 import java.io.Serializable;
 import java.security.Permission;
+import java.security.PermissionCollection;
 
 /**
  * <p>
@@ -54,6 +55,8 @@ public final class WebRoleRefPermission extends Permission implements Serializab
    public WebRoleRefPermission(String name, String actions)
    {
       super(name);
+      if (actions == null)
+         throw new NullPointerException("The actions may not be null");
       this.actions = actions;
       this.hashCode = name.hashCode() + actions.hashCode();
    }
@@ -127,6 +130,13 @@ public final class WebRoleRefPermission extends Permission implements Serializab
    @Override
    public int hashCode()
    {
+      // recomputed on first use after deserialization, as the field is not restored.
+      int hashCode = this.hashCode;
+      if (hashCode == 0)
+      {
+         hashCode = getName().hashCode() + this.actions.hashCode();
+         this.hashCode = hashCode;
+      }
       return hashCode;
    }
 
@@ -153,4 +163,19 @@ public final class WebRoleRefPermission extends Permission implements Serializab
    {
       return equals(p);
    }
+
+   /**
+    * <p>
+    * Returns a new {@code PermissionCollection} for storing {@code WebRoleRefPermission} objects. The returned
+    * collection indexes the permissions by name and role reference, so that {@code implies} is a constant time
+    * lookup.
+    * </p>
+    * 
+    * @return a new {@code PermissionCollection} suitable for storing {@code WebRoleRefPermission} objects.
+    */
+   @Override
+   public PermissionCollection newPermissionCollection()
+   {
+      return new RoleRefPermissionCollection(WebRoleRefPermission.class);
+   }
 }
@@ -6,7 +6,8 @@ import java.io.ObjectInputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.security.Permission;
-import java.util.TreeSet;
+import java.security.PermissionCollection;
+import java.util.Objects;
 import javax.servlet.http.HttpServletRequest;
 
 /**
@@ -24,7 +25,7 @@ import javax.servlet.http.HttpServletRequest;
  * @author <a href="mailto:sguilhen@redhat.com">Stefan Guilhen</a>
  * @see java.security.Permission
  */
-@SuppressWarnings({"unused", "unchecked"})
+@SuppressWarnings("unused")
 public final class WebUserDataPermission extends Permission implements Serializable
 {
    /** @since 4.0.2 */
@@ -41,12 +42,15 @@ public final class WebUserDataPermission extends Permission implements Serializa
 
    private transient String transportType;
 
-   private transient TreeSet<String> httpMethods;
+   private transient HTTPMethodSet httpMethods;
 
-   private transient TreeSet<String> httpExceptionList;
+   private transient HTTPMethodSet httpExceptionList;
 
    private transient String httpExceptionString;
 
+   /** the cached hash code, computed on first use */
+   private transient int hashCode;
+
    /**
     * <p>
     * Creates a new WebUserDataPermission from the HttpServletRequest object.
@@ -64,7 +68,8 @@ public final class WebUserDataPermission extends Permission implements Serializa
     */
    public WebUserDataPermission(HttpServletRequest request)
    {
-      this(WebResourcePermission.requestURI(request), requestActions(request));
+      this(WebResourcePermission.requestURI(request), HTTPMethodSet.valueOfMethod(request.getMethod()), request
+            .isSecure() ? "CONFIDENTIAL" : null);
    }
 
    /**
@@ -169,7 +174,7 @@ public final class WebUserDataPermission extends Permission implements Serializa
       super(name == null ? "/" : name);
       if (name == null)
          name = "/";
-      this.urlSpec = new URLPatternSpec(name);
+      this.urlSpec = URLPatternSpec.valueOf(name);
       parseActions(actions);
    }
 
@@ -197,15 +202,36 @@ public final class WebUserDataPermission extends Permission implements Serializa
    public WebUserDataPermission(String urlPatternSpec, String[] httpMethods, String transportType)
    {
       super(urlPatternSpec);
-      this.urlSpec = new URLPatternSpec(urlPatternSpec);
-      Object[] methodInfo = WebResourcePermission.canonicalMethods(httpMethods);
-      this.httpMethods = (TreeSet<String>) methodInfo[0];
-      this.httpMethodsString = (String) methodInfo[1];
+      this.urlSpec = URLPatternSpec.valueOf(urlPatternSpec);
+      this.httpMethods = HTTPMethodSet.valueOf(httpMethods);
+      this.httpMethodsString = this.httpMethods.getActions();
       if (transportType != null && transportType.equalsIgnoreCase("NONE"))
          transportType = null;
       this.transportType = transportType;
    }
 
+   /**
+    * <p>
+    * Creates a new WebUserDataPermission with the specified name, an already canonicalized set of HTTP methods and the
+    * transport type.
+    * </p>
+    * 
+    * @param name
+    *           - the URLPatternSpec that identifies the web resources to which the permission pertains.
+    * @param httpMethods
+    *           - the HTTP methods to which the permission pertains.
+    * @param transportType
+    *           - the transport type, or {@code null} for transportType "NONE".
+    */
+   private WebUserDataPermission(String name, HTTPMethodSet httpMethods, String transportType)
+   {
+      super(name);
+      this.urlSpec = new URLPatternSpec(name);
+      this.httpMethods = httpMethods;
+      this.httpMethodsString = httpMethods.getActions();
+      this.transportType = transportType;
+   }
+
    /**
     * <p>
     * Checks two WebUserDataPermission objects for equality. WebUserDataPermission objects are equivalent if their
@@ -230,6 +256,12 @@ public final class WebUserDataPermission extends Permission implements Serializa
       if (p == null || !(p instanceof WebUserDataPermission))
          return false;
       WebUserDataPermission perm = (WebUserDataPermission) p;
+      // permissions that require different transport types can never imply each other
+      if (Objects.equals(transportType, perm.transportType) == false)
+         return false;
+      // permissions with the same canonical URLPatternSpec and HTTP methods are equivalent
+      if (this == perm || hasSameCanonicalForm(perm))
+         return true;
       /**
        * Two Permission objects, P1 and P2, are equivalent if and only if P1.implies(P2) && P2.implies(P1).
        */
@@ -313,10 +345,15 @@ public final class WebUserDataPermission extends Permission implements Serializa
    @Override
    public int hashCode()
    {
-      int hashCode = 17;
-      hashCode = 37 * hashCode + this.urlSpec.hashCode();
-      if (this.httpMethods != null)
-         hashCode = 37 * hashCode + this.httpMethods.hashCode();
+      int hashCode = this.hashCode;
+      if (hashCode == 0)
+      {
+         hashCode = 17;
+         hashCode = 37 * hashCode + this.urlSpec.hashCode();
+         if (this.httpMethods != null)
+            hashCode = 37 * hashCode + this.httpMethods.hashCode();
+         this.hashCode = hashCode;
+      }
       return hashCode;
    }
 
@@ -372,33 +409,90 @@ public final class WebUserDataPermission extends Permission implements Serializa
       // Check the URL patterns
       boolean implies = urlSpec.implies(perm.urlSpec);
       if (implies == true)
-      {
-         if (httpExceptionList != null)
-            implies = WebResourcePermission.matchExceptionList(httpExceptionList, perm.httpExceptionList);
-         // Check the http methods
-         if (httpMethods != null && perm.httpMethods != null)
-            implies = httpMethods.containsAll(perm.httpMethods);
-         // Check the transport guarantee
-         if (implies == true && transportType != null)
-            implies = transportType.equals(perm.transportType);
-      }
+         implies = impliesActions(perm.httpMethods, perm.httpExceptionList, perm.transportType);
 
       return implies;
    }
 
-   // Private -------------------------------------------------------
    /**
-    * Build the request permission actions from the HTTP method component using HttpServletRequest.getMethod() + the
-    * TransportType component of the action from HttpServletRequest.isSecure().
+    * <p>
+    * Determines if this permission implies the permission that would be constructed for a request to the specified
+    * context relative path with the specified HTTP methods and transport type, without constructing that permission.
+    * </p>
     * 
-    * @param request
-    *           - the servlet request
-    * @return the permission actions string
+    * @param path
+    *           - the context relative request path, with colons escaped.
+    * @param methods
+    *           - the HTTP methods of the request.
+    * @param transportType
+    *           - the transport type of the request, or {@code null} for transportType "NONE".
+    * @return true if the request permission is implied by this object, false if not.
     */
-   private static String requestActions(HttpServletRequest request)
+   boolean impliesRequest(String path, HTTPMethodSet methods, String transportType)
    {
-      String actions = request.getMethod() + (request.isSecure() ? ":CONFIDENTIAL" : "");
-      return actions;
+      return urlSpec.impliesPath(path) && impliesActions(methods, null, transportType);
+   }
+
+   /**
+    * <p>
+    * Returns a new {@code PermissionCollection} for storing {@code WebUserDataPermission} objects. The returned
+    * collection splits the permissions by transport type and indexes each split by the first {@code URLPattern} of the
+    * permissions' {@code URLPatternSpec}, so that {@code implies} only evaluates the permissions that can match the
+    * argument permission.
+    * </p>
+    * 
+    * @return a new {@code PermissionCollection} suitable for storing {@code WebUserDataPermission} objects.
+    */
+   @Override
+   public PermissionCollection newPermissionCollection()
+   {
+      return new WebUserDataPermissionCollection();
+   }
+
+   /**
+    * <p>
+    * Obtains the {@code URLPatternSpec} that identifies the web resources to which this permission pertains.
+    * </p>
+    * 
+    * @return this permission's {@code URLPatternSpec}.
+    */
+   URLPatternSpec getURLPatternSpec()
+   {
+      return this.urlSpec;
+   }
+
+   /**
+    * <p>
+    * Obtains the transport type of this permission.
+    * </p>
+    * 
+    * @return the transport type, or {@code null} if the permission has a transport type of "NONE".
+    */
+   String getTransportType()
+   {
+      return this.transportType;
+   }
+
+   // Private -------------------------------------------------------
+   private boolean impliesActions(HTTPMethodSet methods, HTTPMethodSet exceptionList, String transportType)
+   {
+      boolean implies = true;
+      if (httpExceptionList != null)
+         implies = WebResourcePermission.matchExceptionList(httpExceptionList, exceptionList);
+      // Check the http methods
+      if (httpMethods != null && methods != null)
+         implies = httpMethods.containsAll(methods);
+      // Check the transport guarantee
+      if (implies == true && this.transportType != null)
+         implies = this.transportType.equals(transportType);
+      return implies;
+   }
+
+   private boolean hasSameCanonicalForm(WebUserDataPermission perm)
+   {
+      return this.hashCode() == perm.hashCode() && this.urlSpec.equals(perm.urlSpec)
+            && Objects.equals(this.httpMethods, perm.httpMethods)
+            && Objects.equals(this.httpExceptionList, perm.httpExceptionList);
    }
 
    private void parseActions(String actions)
@@ -419,16 +513,16 @@ public final class WebUserDataPermission extends Permission implements Serializa
       if (exceptionListNeeded)
          actions = actions.substring(1);
 
-       Object[] methodInfo = WebResourcePermission.canonicalMethods(actions);
+      HTTPMethodSet methods = HTTPMethodSet.valueOf(actions);
       if (exceptionListNeeded)
       {
-         this.httpExceptionList = (TreeSet<String>) methodInfo[0];
-         this.httpExceptionString = (String) methodInfo[1];
+         this.httpExceptionList = methods;
+         this.httpExceptionString = methods.getActions();
       }
       else
       {
-         this.httpMethods = (TreeSet<String>) methodInfo[0];
-         this.httpMethodsString = (String) methodInfo[1];
+         this.httpMethods = methods;
+         this.httpMethodsString = methods.getActions();
       }
    }
 
@@ -436,6 +530,7 @@ public final class WebUserDataPermission extends Permission implements Serializa
    {
       ObjectInputStream.GetField fields = ois.readFields();
       String actions = (String) fields.get("actions", null);
+      this.urlSpec = URLPatternSpec.valueOf(getName());
       parseActions(actions);
    }
 
@@ -0,0 +1,159 @@
+package javax.security.jacc;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.security.Permission;
+import java.security.PermissionCollection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * A {@code PermissionCollection} of {@code WebUserDataPermission} objects. The permissions are first split by their
+ * transport type: permissions with a transport type of "NONE" apply to any connection, while permissions requiring a
+ * specific transport type (e.g. "CONFIDENTIAL" or "INTEGRAL") only apply to argument permissions with the same transport
+ * type. Each split is then indexed by the first {@code URLPattern} of the permissions' {@code URLPatternSpec}, so that
+ * {@code implies} only evaluates the permissions that can possibly imply the argument permission.
+ * </p>
+ *
+ * @see WebUserDataPermission#newPermissionCollection()
+ */
+final class WebUserDataPermissionCollection extends PermissionCollection
+{
+   private static final long serialVersionUID = 1;
+
+   private final List<WebUserDataPermission> permissions = new ArrayList<WebUserDataPermission>();
+
+   /** the permissions whose transport type is "NONE" */
+   private transient URLPatternIndex<WebUserDataPermission> anyTransport;
+
+   /** the permissions that require a transport type, keyed by that transport type */
+   private transient ConcurrentMap<String, URLPatternIndex<WebUserDataPermission>> byTransport;
+
+   /**
+    * <p>
+    * Creates an empty {@code WebUserDataPermissionCollection}.
+    * </p>
+    */
+   WebUserDataPermissionCollection()
+   {
+      initIndexes();
+   }
+
+   /**
+    * <p>
+    * Adds a {@code WebUserDataPermission} to this collection.
+    * </p>
+    *
+    * @param permission
+    *           the {@code WebUserDataPermission} to be added.
+    * @throws IllegalArgumentException
+    *            if the permission is not a {@code WebUserDataPermission}.
+    * @throws SecurityException
+    *            if this collection has been marked read-only.
+    */
+   @Override
+   public void add(Permission permission)
+   {
+      if (permission instanceof WebUserDataPermission == false)
+         throw new IllegalArgumentException("Invalid permission type: " + permission);
+      if (isReadOnly())
+         throw new SecurityException("Cannot add a permission to a read-only PermissionCollection");
+      WebUserDataPermission perm = (WebUserDataPermission) permission;
+      synchronized (this)
+      {
+         this.permissions.add(perm);
+         index(perm);
+      }
+   }
+
+   /**
+    * <p>
+    * Checks if the specified permission is implied by one of the {@code WebUserDataPermission} objects held in this
+    * collection.
+    * </p>
+    *
+    * @param permission
+    *           the {@code Permission} to be checked.
+    * @return {@code true} if the permission is implied by this collection; {@code false} otherwise.
+    */
+   @Override
+   public boolean implies(Permission permission)
+   {
+      if (permission instanceof WebUserDataPermission == false)
+         return false;
+      final WebUserDataPermission perm = (WebUserDataPermission) permission;
+      URLPatternIndex.Visitor<WebUserDataPermission> visitor = new URLPatternIndex.Visitor<WebUserDataPermission>()
+      {
+         public boolean visit(URLPattern pattern, WebUserDataPermission entry)
+         {
+            return entry.implies(perm);
+         }
+      };
+
+      String urlPattern = perm.getURLPatternSpec().urlPattern.getPattern();
+      if (this.anyTransport.visit(urlPattern, visitor))
+         return true;
+      String transportType = perm.getTransportType();
+      if (transportType != null)
+      {
+         URLPatternIndex<WebUserDataPermission> index = this.byTransport.get(transportType);
+         if (index != null)
+            return index.visit(urlPattern, visitor);
+      }
+      return false;
+   }
+
+   /**
+    * <p>
+    * Returns an enumeration of the {@code WebUserDataPermission} objects held in this collection.
+    * </p>
+    *
+    * @return an {@code Enumeration} of the permissions in this collection.
+    */
+   @Override
+   public synchronized Enumeration<Permission> elements()
+   {
+      return Collections.enumeration(new ArrayList<Permission>(this.permissions));
+   }
+
+   private void initIndexes()
+   {
+      this.anyTransport = new URLPatternIndex<WebUserDataPermission>();
+      this.byTransport = new ConcurrentHashMap<String, URLPatternIndex<WebUserDataPermission>>();
+   }
+
+   private void index(WebUserDataPermission perm)
+   {
+      URLPatternIndex<WebUserDataPermission> index = this.anyTransport;
+      String transportType = perm.getTransportType();
+      if (transportType != null)
+      {
+         index = this.byTransport.get(transportType);
+         if (index == null)
+         {
+            index = new URLPatternIndex<WebUserDataPermission>();
+            this.byTransport.put(transportType, index);
+         }
+      }
+      index.add(perm.getURLPatternSpec().urlPattern, perm);
+   }
+
+   private void readObject(ObjectInputStream ois) throws ClassNotFoundException, IOException
+   {
+      ois.defaultReadObject();
+      initIndexes();
+      for (WebUserDataPermission perm : this.permissions)
+         index(perm);
+   }
+
+   private synchronized void writeObject(ObjectOutputStream oos) throws IOException
+   {
+      oos.defaultWriteObject();
+   }
+}
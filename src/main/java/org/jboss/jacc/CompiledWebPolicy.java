@@ -0,0 +1,157 @@
+package org.jboss.jacc;
+
+import java.util.BitSet;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * <p>
+ * An immutable, precompiled form of the {@code WebResourcePermission} and {@code WebUserDataPermission} statements of
+ * a policy context. The excluded, unchecked and role permissions are merged into a single index over URL patterns, so
+ * that a Servlet request is decided in one traversal of the patterns matching its path instead of one scan of the
+ * excluded, unchecked and per-role permission collections each.
+ * </p>
+ *
+ * <p>
+ * Each decision has one of three forms: the request is excluded, the request is unchecked, or the request is granted to
+ * a (possibly empty) set of roles. Excluded permissions take precedence over unchecked permissions, which take
+ * precedence over role permissions. Instances are obtained from a {@code WebPolicyCompiler}, and are meant to be
+ * rebuilt whenever the corresponding {@code PolicyConfiguration} is committed. They may be shared by concurrent
+ * threads.
+ * </p>
+ *
+ * <p>
+ * The roles of a decision are also available as a set of identifiers assigned by the {@code RoleRegistry} of the
+ * policy, so that the container can check them against the roles of a caller with a bitwise intersection.
+ * </p>
+ *
+ * @see WebPolicyCompiler
+ * @see javax.security.jacc.PolicyConfiguration#commit()
+ */
+public interface CompiledWebPolicy
+{
+   /**
+    * <p>
+    * Obtains the registry that assigns the role identifiers used by the decisions of this policy.
+    * </p>
+    *
+    * @return the {@code RoleRegistry} of this policy.
+    */
+   RoleRegistry getRoleRegistry();
+
+   /**
+    * <p>
+    * Decides the {@code WebResourcePermission} that would be constructed from the specified Servlet request.
+    * </p>
+    *
+    * @param request
+    *           - the {@code HttpServletRequest} object corresponding to the Servlet operation to be decided.
+    * @return the {@code Decision} for the request.
+    */
+   Decision decideResource(HttpServletRequest request);
+
+   /**
+    * <p>
+    * Decides the {@code WebResourcePermission} with the specified request path and HTTP method.
+    * </p>
+    *
+    * @param path
+    *           - the context relative request path, as in the name of a {@code WebResourcePermission} constructed from
+    *           an {@code HttpServletRequest}: the path "/" is represented by the empty string and all colons are
+    *           escaped.
+    * @param method
+    *           - the HTTP method of the request. A {@code null} or empty method stands for all HTTP methods.
+    * @return the {@code Decision} for the request.
+    */
+   Decision decideResource(String path, String method);
+
+   /**
+    * <p>
+    * Decides the {@code WebUserDataPermission} that would be constructed from the specified Servlet request.
+    * </p>
+    *
+    * @param request
+    *           - the {@code HttpServletRequest} object corresponding to the Servlet operation to be decided.
+    * @return the {@code Decision} for the request.
+    */
+   Decision decideUserData(HttpServletRequest request);
+
+   /**
+    * <p>
+    * Decides the {@code WebUserDataPermission} with the specified request path, HTTP method and transport type.
+    * </p>
+    *
+    * @param path
+    *           - the context relative request path, as in the name of a {@code WebUserDataPermission} constructed from
+    *           an {@code HttpServletRequest}: the path "/" is represented by the empty string and all colons are
+    *           escaped.
+    * @param method
+    *           - the HTTP method of the request. A {@code null} or empty method stands for all HTTP methods.
+    * @param transportType
+    *           - the transport type of the connection ("CONFIDENTIAL" for a secure connection), or {@code null} if the
+    *           connection is not protected.
+    * @return the {@code Decision} for the request.
+    */
+   Decision decideUserData(String path, String method, String transportType);
+
+   /**
+    * <p>
+    * The outcome of the evaluation of a Servlet request against a {@code CompiledWebPolicy}.
+    * </p>
+    */
+   interface Decision
+   {
+      /**
+       * <p>
+       * Checks if the request is matched by an excluded permission, in which case it must be denied to everyone.
+       * </p>
+       *
+       * @return {@code true} if the request is excluded; {@code false} otherwise.
+       */
+      boolean isExcluded();
+
+      /**
+       * <p>
+       * Checks if the request is matched by an unchecked permission (and by no excluded permission), in which case it
+       * must be granted to everyone.
+       * </p>
+       *
+       * @return {@code true} if the request is unchecked; {@code false} otherwise.
+       */
+      boolean isUnchecked();
+
+      /**
+       * <p>
+       * Obtains the roles that are granted the request. The set is empty if the request is excluded or unchecked, or
+       * if no role permission matches the request.
+       * </p>
+       *
+       * @return an unmodifiable {@code Set} of role names.
+       */
+      Set<String> getRoles();
+
+      /**
+       * <p>
+       * Obtains the identifiers of the roles that are granted the request, as assigned by the {@code RoleRegistry} of
+       * the policy.
+       * </p>
+       *
+       * @return a new {@code BitSet} holding the role identifiers.
+       */
+      BitSet getRoleIds();
+
+      /**
+       * <p>
+       * Checks if the request is granted to a caller: it must not be excluded, and it must either be unchecked or be
+       * granted to one of the roles of the caller.
+       * </p>
+       *
+       * @param callerRoleIds
+       *           - the identifiers of the roles held by the caller, as obtained from {@link
+       *           RoleRegistry#toBitSet(java.util.Collection)}.
+       * @return {@code true} if the caller is granted the request; {@code false} otherwise.
+       */
+      boolean isGranted(BitSet callerRoleIds);
+   }
+}
@@ -0,0 +1,293 @@
+package org.jboss.jacc;
+
+import java.lang.reflect.Method;
+import java.security.PermissionCollection;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.security.jacc.EJBMethodPermission;
+
+/**
+ * <p>
+ * A precompiled table of the access decisions for the methods of an EJB interface. The {@code EJBMethodPermission} of
+ * every method is built once, when the table is created at deployment time, and the table is then resolved against the
+ * excluded, unchecked and role permissions of the policy context each time the context is committed. At invocation
+ * time the container identifies the method by its ordinal, that is its index in the array of methods the table was
+ * created with, and obtains the decision with an array access, without constructing any permission.
+ * </p>
+ *
+ * <p>
+ * Excluded permissions take precedence over unchecked permissions, which take precedence over role permissions.
+ * Lookups may run concurrently with {@link #resolve(PermissionCollection, PermissionCollection, Map)}: they see either
+ * the previous or the new resolution, never a mix of both. Role names are assigned identifiers by a {@code
+ * RoleRegistry}, so that the roles granted a method can be checked against the roles of a caller with a bitwise
+ * intersection.
+ * </p>
+ *
+ * @see EJBMethodPermission
+ * @see javax.security.jacc.PolicyConfiguration#commit()
+ */
+public final class EJBMethodPolicyTable
+{
+   private static final Resolution EXCLUDED = new Resolution(true, false, Collections.<String> emptySet(),
+         new BitSet());
+
+   private static final Resolution UNCHECKED = new Resolution(false, true, Collections.<String> emptySet(),
+         new BitSet());
+
+   private static final Resolution NO_ROLE = new Resolution(false, false, Collections.<String> emptySet(),
+         new BitSet());
+
+   private final EJBMethodPermission[] permissions;
+
+   private final RoleRegistry roleRegistry;
+
+   private volatile Resolution[] resolutions;
+
+   /**
+    * <p>
+    * Creates a new {@code EJBMethodPolicyTable} for the specified methods of an EJB.
+    * </p>
+    *
+    * @param ejbName
+    *           - the name of the EJB as it appears in the corresponding ejb-name element in the deployment descriptor.
+    * @param methodInterface
+    *           - the EJB interface of the methods (e.g. "Remote" or "Local"), or {@code null} if the permissions
+    *           pertain to all interfaces.
+    * @param methods
+    *           - the methods of the EJB interface. The index of a method in this array is its ordinal in the table.
+    *           The value of this parameter must not be null.
+    */
+   public EJBMethodPolicyTable(String ejbName, String methodInterface, Method[] methods)
+   {
+      this(ejbName, methodInterface, methods, new RoleRegistry());
+   }
+
+   /**
+    * <p>
+    * Creates a new {@code EJBMethodPolicyTable} for the specified methods of an EJB, assigning role identifiers with
+    * the specified registry, which may be shared with the other tables and compiled policies of the same policy
+    * context.
+    * </p>
+    *
+    * @param ejbName
+    *           - the name of the EJB as it appears in the corresponding ejb-name element in the deployment descriptor.
+    * @param methodInterface
+    *           - the EJB interface of the methods (e.g. "Remote" or "Local"), or {@code null} if the permissions
+    *           pertain to all interfaces.
+    * @param methods
+    *           - the methods of the EJB interface. The index of a method in this array is its ordinal in the table.
+    *           The value of this parameter must not be null.
+    * @param roleRegistry
+    *           - the registry assigning the role identifiers. The value of this parameter must not be null.
+    */
+   public EJBMethodPolicyTable(String ejbName, String methodInterface, Method[] methods, RoleRegistry roleRegistry)
+   {
+      if (methods == null)
+         throw new IllegalArgumentException("The methods may not be null");
+      if (roleRegistry == null)
+         throw new IllegalArgumentException("The role registry may not be null");
+      this.roleRegistry = roleRegistry;
+      this.permissions = new EJBMethodPermission[methods.length];
+      for (int i = 0; i < methods.length; i++)
+         this.permissions[i] = new EJBMethodPermission(ejbName, methodInterface, methods[i]);
+   }
+
+   /**
+    * <p>
+    * Resolves the method permissions of this table against the policy statements of a policy context, replacing the
+    * result of any previous resolution. This method is meant to be called when the policy context is committed.
+    * </p>
+    *
+    * @param excluded
+    *           - the excluded permissions of the policy context, or {@code null} if there are none.
+    * @param unchecked
+    *           - the unchecked permissions of the policy context, or {@code null} if there are none.
+    * @param roles
+    *           - the permissions granted to each role of the policy context, keyed by role name, or {@code null} if
+    *           there are none.
+    */
+   public synchronized void resolve(PermissionCollection excluded, PermissionCollection unchecked,
+         Map<String, ? extends PermissionCollection> roles)
+   {
+      Resolution[] resolutions = new Resolution[this.permissions.length];
+      for (int i = 0; i < this.permissions.length; i++)
+      {
+         EJBMethodPermission perm = this.permissions[i];
+         if (excluded != null && excluded.implies(perm))
+            resolutions[i] = EXCLUDED;
+         else if (unchecked != null && unchecked.implies(perm))
+            resolutions[i] = UNCHECKED;
+         else
+         {
+            Set<String> granted = null;
+            BitSet grantedIds = null;
+            if (roles != null)
+            {
+               for (Map.Entry<String, ? extends PermissionCollection> role : roles.entrySet())
+               {
+                  if (role.getValue().implies(perm))
+                  {
+                     if (granted == null)
+                     {
+                        granted = new LinkedHashSet<String>();
+                        grantedIds = new BitSet();
+                     }
+                     granted.add(role.getKey());
+                     grantedIds.set(this.roleRegistry.register(role.getKey()));
+                  }
+               }
+            }
+            resolutions[i] = granted == null ? NO_ROLE : new Resolution(false, false, Collections
+                  .unmodifiableSet(granted), grantedIds);
+         }
+      }
+      this.resolutions = resolutions;
+   }
+
+   /**
+    * <p>
+    * Obtains the registry that assigns the role identifiers used by this table.
+    * </p>
+    *
+    * @return the {@code RoleRegistry} of this table.
+    */
+   public RoleRegistry getRoleRegistry()
+   {
+      return this.roleRegistry;
+   }
+
+   /**
+    * <p>
+    * Obtains the number of methods in this table.
+    * </p>
+    *
+    * @return the number of methods.
+    */
+   public int size()
+   {
+      return this.permissions.length;
+   }
+
+   /**
+    * <p>
+    * Obtains the precomputed permission of a method.
+    * </p>
+    *
+    * @param ordinal
+    *           - the ordinal of the method.
+    * @return the {@code EJBMethodPermission} of the method.
+    */
+   public EJBMethodPermission getPermission(int ordinal)
+   {
+      return this.permissions[ordinal];
+   }
+
+   /**
+    * <p>
+    * Checks if a method is matched by an excluded permission, in which case it must not be called by anyone.
+    * </p>
+    *
+    * @param ordinal
+    *           - the ordinal of the method.
+    * @return {@code true} if the method is excluded; {@code false} otherwise.
+    * @throws IllegalStateException
+    *            if this table has not been resolved.
+    */
+   public boolean isExcluded(int ordinal)
+   {
+      return resolution(ordinal).excluded;
+   }
+
+   /**
+    * <p>
+    * Checks if a method is matched by an unchecked permission (and by no excluded permission), in which case it may be
+    * called by anyone.
+    * </p>
+    *
+    * @param ordinal
+    *           - the ordinal of the method.
+    * @return {@code true} if the method is unchecked; {@code false} otherwise.
+    * @throws IllegalStateException
+    *            if this table has not been resolved.
+    */
+   public boolean isUnchecked(int ordinal)
+   {
+      return resolution(ordinal).unchecked;
+   }
+
+   /**
+    * <p>
+    * Obtains the roles that are granted a method. The set is empty if the method is excluded or unchecked, or if no
+    * role permission matches the method.
+    * </p>
+    *
+    * @param ordinal
+    *           - the ordinal of the method.
+    * @return an unmodifiable {@code Set} of role names.
+    * @throws IllegalStateException
+    *            if this table has not been resolved.
+    */
+   public Set<String> getRoles(int ordinal)
+   {
+      return resolution(ordinal).roles;
+   }
+
+   /**
+    * <p>
+    * Checks if a method may be called by a caller: it must not be excluded, and it must either be unchecked or be
+    * granted to one of the roles of the caller.
+    * </p>
+    *
+    * @param ordinal
+    *           - the ordinal of the method.
+    * @param callerRoleIds
+    *           - the identifiers of the roles held by the caller, as obtained from {@link
+    *           RoleRegistry#toBitSet(java.util.Collection)}.
+    * @return {@code true} if the caller may call the method; {@code false} otherwise.
+    * @throws IllegalStateException
+    *            if this table has not been resolved.
+    */
+   public boolean isGranted(int ordinal, BitSet callerRoleIds)
+   {
+      Resolution resolution = resolution(ordinal);
+      if (resolution.excluded || resolution.unchecked)
+         return resolution.unchecked;
+      return resolution.roleIds.intersects(callerRoleIds);
+   }
+
+   private Resolution resolution(int ordinal)
+   {
+      Resolution[] resolutions = this.resolutions;
+      if (resolutions == null)
+         throw new IllegalStateException("The table has not been resolved against a policy");
+      return resolutions[ordinal];
+   }
+
+   /**
+    * <p>
+    * The resolved decision for one method.
+    * </p>
+    */
+   private static final class Resolution
+   {
+      private final boolean excluded;
+
+      private final boolean unchecked;
+
+      private final Set<String> roles;
+
+      private final BitSet roleIds;
+
+      Resolution(boolean excluded, boolean unchecked, Set<String> roles, BitSet roleIds)
+      {
+         this.excluded = excluded;
+         this.unchecked = unchecked;
+         this.roles = roles;
+         this.roleIds = roleIds;
+      }
+   }
+}
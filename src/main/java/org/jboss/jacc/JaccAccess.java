@@ -0,0 +1,152 @@
+package org.jboss.jacc;
+
+import java.security.Permission;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import javax.security.jacc.PolicyContext;
+import javax.security.jacc.PolicyContextHandler;
+
+/**
+ * <p>
+ * Gives the classes of this package access to the implementation of the {@code javax.security.jacc} package. The JACC
+ * API may not be extended with public members, so the extensions of its classes are package-private, and are exposed
+ * to this package through the single instance of this class, which the implementation installs when {@code
+ * PolicyContext} is initialized.
+ * </p>
+ *
+ * <p>
+ * This class is not meant to be used outside this package: the installed instance cannot be obtained from outside
+ * this package, and no other instance can be installed.
+ * </p>
+ *
+ * @see PolicyContextSupport
+ */
+public abstract class JaccAccess
+{
+   private static volatile JaccAccess access;
+
+   /**
+    * <p>
+    * Creates a new {@code JaccAccess}.
+    * </p>
+    */
+   protected JaccAccess()
+   {
+   }
+
+   /**
+    * <p>
+    * Installs the access to the implementation of the {@code javax.security.jacc} package. This method is called by
+    * the implementation when it is initialized, and fails on any other call.
+    * </p>
+    *
+    * @param access
+    *           - the access to the implementation. The value of this parameter must not be null.
+    * @throws IllegalStateException
+    *            - if the access is already installed.
+    */
+   public static void install(JaccAccess access)
+   {
+      if (access == null)
+         throw new IllegalArgumentException("The access may not be null");
+      // the implementation installs its access first, unless this is the call it makes.
+      initializeImplementation();
+      synchronized (JaccAccess.class)
+      {
+         if (JaccAccess.access != null)
+            throw new IllegalStateException("The access to the JACC implementation is already installed");
+         JaccAccess.access = access;
+      }
+   }
+
+   /**
+    * <p>
+    * Obtains the access to the implementation of the {@code javax.security.jacc} package, initializing the
+    * implementation if necessary.
+    * </p>
+    *
+    * @return the installed {@code JaccAccess}.
+    */
+   static JaccAccess get()
+   {
+      JaccAccess access = JaccAccess.access;
+      if (access == null)
+      {
+         initializeImplementation();
+         access = JaccAccess.access;
+      }
+      return access;
+   }
+
+   private static void initializeImplementation()
+   {
+      try
+      {
+         Class.forName(PolicyContext.class.getName(), true, PolicyContext.class.getClassLoader());
+      }
+      catch (ClassNotFoundException e)
+      {
+         // cannot happen, the class is referenced by this one.
+         throw new IllegalStateException(e);
+      }
+   }
+
+   /**
+    * @see PolicyContextSupport#getHandle(String)
+    */
+   protected abstract PolicyContextSupport.Handle getHandle(String key);
+
+   /**
+    * @see PolicyContextSupport#registerHandler(String, PolicyContextHandler, boolean, boolean)
+    */
+   protected abstract void registerHandler(String key, PolicyContextHandler handler, boolean replace, boolean memoize);
+
+   /**
+    * @see PolicyContextSupport#setHandlerDataSupplier(PolicyContextSupport.HandlerDataSupplier)
+    */
+   protected abstract void setHandlerDataSupplier(PolicyContextSupport.HandlerDataSupplier supplier);
+
+   /**
+    * @see PolicyContextSupport#enter(String, Object)
+    */
+   protected abstract PolicyContextSupport.Scope enter(String contextID, Object data);
+
+   /**
+    * @see PolicyContextSupport#run(String, Object, Runnable)
+    */
+   protected abstract void run(String contextID, Object data, Runnable task);
+
+   /**
+    * @see PolicyContextSupport#call(String, Object, Callable)
+    */
+   protected abstract <T> T call(String contextID, Object data, Callable<T> task) throws Exception;
+
+   /**
+    * @see PolicyContextSupport#snapshot()
+    */
+   protected abstract PolicyContextSupport.Snapshot snapshot();
+
+   /**
+    * @see URLPatternResolver#newInstance(Collection)
+    */
+   protected abstract URLPatternResolver newURLPatternResolver(Collection<String> urlPatterns);
+
+   /**
+    * @see WebPolicyCompiler#compile()
+    */
+   protected abstract CompiledWebPolicy newCompiledWebPolicy(List<Permission> excluded, List<Permission> unchecked,
+         Map<String, List<Permission>> roles, RoleRegistry roleRegistry);
+
+   /**
+    * @see PolicyDecisionCache#newInstance()
+    */
+   protected abstract PolicyDecisionCache newPolicyDecisionCache();
+
+   /**
+    * @see PolicyDecisionCache#newInstance(int, int)
+    */
+   protected abstract PolicyDecisionCache newPolicyDecisionCache(int maxContexts, int maxDecisions);
+}
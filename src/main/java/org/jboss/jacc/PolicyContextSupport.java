@@ -0,0 +1,374 @@
+package org.jboss.jacc;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import javax.security.jacc.PolicyContext;
+import javax.security.jacc.PolicyContextException;
+import javax.security.jacc.PolicyContextHandler;
+
+/**
+ * <p>
+ * Extensions of {@code PolicyContext} for containers and {@code Policy} providers. They are kept out of the {@code
+ * javax.security.jacc} package, whose classes only have the public members of the JACC API, and operate on the same
+ * thread-scoped policy context identifier and handler data as the methods of {@code PolicyContext}.
+ * </p>
+ *
+ * <p>
+ * The authorization protected methods of this class have the same requirements as those of {@code PolicyContext}:
+ * they reject calls made from an {@code AccessControlContext} that has not been granted the "setPolicy"
+ * SecurityPermission.
+ * </p>
+ *
+ * @see PolicyContext
+ */
+public final class PolicyContextSupport
+{
+   /**
+    * <p>
+    * Obtains a {@code Handle} for the specified context object key. A handle resolves the {@code PolicyContextHandler}
+    * registered to the key once, and then obtains the context object without looking the handler up again. Handles
+    * are meant to be obtained once and kept by the {@code Policy} provider.
+    * </p>
+    *
+    * @param key
+    *           - a {@code String} that identifies the PolicyContextHandler to activate and the context object to be
+    *           acquired from the handler. The value of this parameter must not be null.
+    * @return the {@code Handle} for the key.
+    * @throws IllegalArgumentException
+    *            - if the value of the key argument is null.
+    */
+   public static Handle getHandle(String key)
+   {
+      return JaccAccess.get().getHandle(key);
+   }
+
+   /**
+    * <p>
+    * Authorization protected method used to register a container specific {@code PolicyContext} handler, as {@link
+    * PolicyContext#registerHandler(String, PolicyContextHandler, boolean)} does, optionally memoizing the context
+    * objects returned by the handler.
+    * </p>
+    *
+    * <p>
+    * When the context objects of a key are memoized, the handler is activated once per policy context: the context
+    * object it returns is kept with the policy context identifier and handler data of the thread, and returned by the
+    * subsequent calls to {@code getContext} for the key until the thread changes its policy context. Every call to
+    * {@code setContextID}, {@code setHandlerData}, {@code setHandlerDataSupplier}, {@code enter} or {@code run}, and
+    * closing a {@code Scope}, changes the policy context, even when the policy context identifier and handler data
+    * stay the same, so that the context objects memoized for one request are never returned to another one. The
+    * context objects are not memoized on a thread that has not set its policy context. Memoization suits handlers that
+    * are expensive to activate and that return the same context object for the same handler data, such as a handler
+    * building the {@code Subject} of the caller.
+    * </p>
+    *
+    * @param key
+    *           - a (case-sensitive) {@code String} that identifies the context object handled by the handler. The value
+    *           of this parameter must not be null.
+    * @param handler
+    *           - an object that implements the {@code PolicyContextHandler} interface. The value of this parameter must
+    *           not be null.
+    * @param replace
+    *           - this boolean value defines the behavior of this method if, when it is called, a {@code
+    *           PolicyContextHandler} has already been registered to handle the same key. In that case, and if the value
+    *           of this argument is {@code true}, the existing handler is replaced with the argument handler. If the
+    *           value of this parameter is false the existing registration is preserved and an exception is thrown.
+    * @param memoize
+    *           - {@code true} if the context objects returned by the handler for the key are to be memoized.
+    * @throws IllegalArgumentException
+    *            - if the value of either of the handler or key arguments is null, or the value of the replace argument
+    *            is false and a handler with the same key as the argument handler is already registered.
+    * @throws SecurityException
+    *            - if the calling {@code AccessControlContext} is not authorized by the container to call this method.
+    * @throws PolicyContextException
+    *            - if an operation by this method on the argument {@code PolicyContextHandler} causes it to throw a
+    *            checked exception that is not accounted for in the signature of this method.
+    */
+   public static void registerHandler(String key, PolicyContextHandler handler, boolean replace, boolean memoize)
+         throws PolicyContextException
+   {
+      JaccAccess.get().registerHandler(key, handler, replace, memoize);
+   }
+
+   /**
+    * <p>
+    * Authorization protected method that may be used to associate thread-scoped handler data with the PolicyContext,
+    * as {@link PolicyContext#setHandlerData(Object)} does, without building the handler data up front. The supplier
+    * is called the first time a handler is activated on the thread, and the handler data it returns is then passed to
+    * the handlers activated until other handler data is associated with the thread. The supplier is not called at all
+    * if no handler is activated, which saves building the handler data for the invocations whose access decisions do
+    * not need it.
+    * </p>
+    *
+    * @param supplier
+    *           - the supplier of the container-specific object that will be associated with the calling thread and
+    *           passed to any handler activated by a {@code Policy} provider (on the thread). The value null is a
+    *           legitimate value for this parameter, and is equivalent to calling {@code setHandlerData} with a null
+    *           value.
+    * @throws SecurityException
+    *            - if the calling {@code AccessControlContext} is not authorized by the container to call this method.
+    * @throws IllegalStateException
+    *            - if called from a subtask of a task run by {@link PolicyContextSupport#run(String, Object,
+    *            Runnable)} with a scoped binding.
+    */
+   public static void setHandlerDataSupplier(HandlerDataSupplier supplier)
+   {
+      JaccAccess.get().setHandlerDataSupplier(supplier);
+   }
+
+   /**
+    * <p>
+    * Authorization protected method used to set both the policy context identifier and the handler data of the thread
+    * on which this method is called, until the returned {@code Scope} is closed. Closing the scope restores the policy
+    * context identifier and the handler data the thread had before this method was called. This method is meant to be
+    * used by containers, in a try-with-resources statement, around each invocation of a component:
+    * </p>
+    *
+    * <pre>
+    * try (PolicyContextSupport.Scope scope = PolicyContextSupport.enter(contextID, data))
+    * {
+    *    // invoke the component
+    * }
+    * </pre>
+    *
+    * <p>
+    * The authorization is checked once, when the scope is entered; closing the scope is not authorization protected.
+    * Scopes must be closed on the thread that entered them, in the reverse order they were entered.
+    * </p>
+    *
+    * @param contextID
+    *           - the policy context identifier to be assigned to the calling thread. The value null is a legitimate
+    *           value for this parameter.
+    * @param data
+    *           - the handler data to be associated with the calling thread. The value null is a legitimate value for
+    *           this parameter.
+    * @return the {@code Scope} to close when the invocation completes.
+    * @throws SecurityException
+    *            - if the calling {@code AccessControlContext} is not authorized by the container to call this method.
+    * @throws IllegalStateException
+    *            - if called from a subtask of a task run by {@link #run(String, Object, Runnable)} with a scoped
+    *            binding.
+    */
+   public static Scope enter(String contextID, Object data)
+   {
+      return JaccAccess.get().enter(contextID, data);
+   }
+
+   /**
+    * <p>
+    * Authorization protected method used to run a task with the specified policy context identifier and handler data.
+    * The policy context identifier and handler data the thread had before this method was called are restored when the
+    * task completes.
+    * </p>
+    *
+    * <p>
+    * When the {@code javax.security.jacc.PolicyContext.scopedValue} system property is set to {@code true}, the policy
+    * context identifier and handler data are bound to a {@code java.lang.ScopedValue} rather than to a {@code
+    * ThreadLocal}: they are inherited by the structured subtasks of the task, and leave no per-thread state behind,
+    * which suits tasks run on virtual threads. The task may still change its own policy context, with the setters of
+    * {@code PolicyContext} or with a {@code Scope}, but its subtasks only see the policy context identifier and handler
+    * data this method was called with, and must themselves call this method to run with another policy context. If
+    * the property is set to {@code true} on a runtime that does not provide {@code ScopedValue}, the initialization of
+    * {@code PolicyContext} fails. Otherwise this method is equivalent to calling the task within a {@link
+    * #enter(String, Object)} scope.
+    * </p>
+    *
+    * @param contextID
+    *           - the policy context identifier to be assigned to the task. The value null is a legitimate value for
+    *           this parameter.
+    * @param data
+    *           - the handler data to be associated with the task. The value null is a legitimate value for this
+    *           parameter.
+    * @param task
+    *           - the task to run. The value of this parameter must not be null.
+    * @throws SecurityException
+    *            - if the calling {@code AccessControlContext} is not authorized by the container to call this method.
+    */
+   public static void run(String contextID, Object data, Runnable task)
+   {
+      JaccAccess.get().run(contextID, data, task);
+   }
+
+   /**
+    * <p>
+    * Authorization protected method used to call a task with the specified policy context identifier and handler
+    * data, as {@link #run(String, Object, Runnable)} does, and return its result.
+    * </p>
+    *
+    * @param contextID
+    *           - the policy context identifier to be assigned to the task. The value null is a legitimate value for
+    *           this parameter.
+    * @param data
+    *           - the handler data to be associated with the task. The value null is a legitimate value for this
+    *           parameter.
+    * @param task
+    *           - the task to call. The value of this parameter must not be null.
+    * @return the result of the task.
+    * @throws SecurityException
+    *            - if the calling {@code AccessControlContext} is not authorized by the container to call this method.
+    * @throws Exception
+    *            - if the task throws an exception.
+    */
+   public static <T> T call(String contextID, Object data, Callable<T> task) throws Exception
+   {
+      return JaccAccess.get().call(contextID, data, task);
+   }
+
+   /**
+    * <p>
+    * Authorization protected method used to capture the policy context identifier and handler data of the calling
+    * thread, so that they can be installed around tasks run on other threads, as for asynchronous invocations. The
+    * authorization is checked once, when the snapshot is taken; running tasks with the snapshot is not authorization
+    * protected.
+    * </p>
+    *
+    * @return the {@code Snapshot} of the policy context of the calling thread.
+    * @throws SecurityException
+    *            - if the calling {@code AccessControlContext} is not authorized by the container to call this method.
+    */
+   public static Snapshot snapshot()
+   {
+      return JaccAccess.get().snapshot();
+   }
+
+   /**
+    * <p>
+    * Private constructor.
+    * </p>
+    */
+   private PolicyContextSupport()
+   {
+   }
+
+   /**
+    * <p>
+    * Supplies the handler data associated with a thread by {@link
+    * PolicyContextSupport#setHandlerDataSupplier(HandlerDataSupplier)}, when a handler is first activated on the
+    * thread.
+    * </p>
+    */
+   public interface HandlerDataSupplier
+   {
+      /**
+       * <p>
+       * Builds the handler data.
+       * </p>
+       *
+       * @return the container-specific handler data, or null.
+       */
+      Object getHandlerData();
+   }
+
+   /**
+    * <p>
+    * A context object key resolved to its {@code PolicyContextHandler}. The handle keeps the handler registered to the
+    * key and the result of its {@code supports} method, so that {@link #getContext()} neither looks the handler up
+    * nor asks it again whether it supports the key. The resolution is tied to the handler registrations it was made
+    * from, and is redone when {@code PolicyContext.registerHandler} changes them.
+    * </p>
+    *
+    * @see PolicyContextSupport#getHandle(String)
+    */
+   public interface Handle
+   {
+      /**
+       * <p>
+       * Obtains the key of this handle.
+       * </p>
+       *
+       * @return the context object key.
+       */
+      String getKey();
+
+      /**
+       * <p>
+       * Activates the {@code PolicyContextHandler} registered to the key of this handle and returns the corresponding
+       * policy context object, as {@link PolicyContext#getContext(String)} does.
+       * </p>
+       *
+       * @return the container and handler specific object containing the desired context.
+       * @throws IllegalArgumentException
+       *            - if a {@code PolicyContextHandler} has not been registered for the key or the registered handler
+       *            does not support the key.
+       * @throws SecurityException
+       *            - if the calling {@code AccessControlContext} is not authorized by the container to call this
+       *            method.
+       * @throws PolicyContextException
+       *            - if an operation by this method on the identified {@code PolicyContextHandler} causes it to throw a
+       *            checked exception that is not accounted for in the signature of this method.
+       */
+      Object getContext() throws PolicyContextException;
+   }
+
+   /**
+    * <p>
+    * The policy context identifier and handler data set by {@link PolicyContextSupport#enter(String, Object)}. Closing
+    * the scope restores the policy context identifier and handler data the thread had when the scope was entered.
+    * </p>
+    */
+   public interface Scope extends AutoCloseable
+   {
+      /**
+       * <p>
+       * Restores the policy context identifier and handler data the thread had when this scope was entered. Closing a
+       * scope more than once has no further effect.
+       * </p>
+       */
+      @Override
+      void close();
+   }
+
+   /**
+    * <p>
+    * An immutable snapshot of the policy context identifier and handler data of a thread, taken by {@link
+    * PolicyContextSupport#snapshot()}. The wrappers returned by a snapshot install its policy context identifier and
+    * handler data around each task they run, and restore the previous ones when the task completes, without any
+    * further authorization check.
+    * </p>
+    */
+   public interface Snapshot
+   {
+      /**
+       * <p>
+       * Obtains the policy context identifier captured by this snapshot.
+       * </p>
+       *
+       * @return the policy context identifier, or null.
+       */
+      String getContextID();
+
+      /**
+       * <p>
+       * Wraps a {@code Runnable} so that it runs with the policy context captured by this snapshot.
+       * </p>
+       *
+       * @param task
+       *           - the task to wrap. The value of this parameter must not be null.
+       * @return the wrapping {@code Runnable}.
+       */
+      Runnable wrap(Runnable task);
+
+      /**
+       * <p>
+       * Wraps a {@code Callable} so that it is called with the policy context captured by this snapshot.
+       * </p>
+       *
+       * @param task
+       *           - the task to wrap. The value of this parameter must not be null.
+       * @return the wrapping {@code Callable}.
+       */
+      <T> Callable<T> wrap(Callable<T> task);
+
+      /**
+       * <p>
+       * Wraps an {@code Executor} so that every task it is given runs with the policy context captured by this
+       * snapshot.
+       * </p>
+       *
+       * @param executor
+       *           - the executor to wrap. The value of this parameter must not be null.
+       * @return the wrapping {@code Executor}.
+       */
+      Executor wrap(Executor executor);
+   }
+}
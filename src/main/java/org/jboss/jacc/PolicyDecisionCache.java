@@ -0,0 +1,153 @@
+package org.jboss.jacc;
+
+import java.security.Permission;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * <p>
+ * A cache of access decisions for use by Policy providers. Decisions are keyed by policy context, by the set of roles
+ * held by the caller and by the checked permission, rather than by caller: the decision for a permission only depends
+ * on the roles of the caller, so all the callers that hold the same roles share the cached decisions. The cache
+ * accepts permissions of every type of the {@code javax.security.jacc} package.
+ * </p>
+ *
+ * <p>
+ * The decisions of a policy context become stale when its policy statements change, so a provider must call {@link
+ * #invalidate(String)} whenever the {@code commit}, {@code removeRole} or {@code delete} method of the {@code
+ * PolicyConfiguration} of the context is called, once the changed statements are in effect. Decisions being evaluated
+ * while the context is invalidated are not cached.
+ * </p>
+ *
+ * <p>
+ * The number of policy contexts, the number of decisions cached per context and the number of role sets are bounded.
+ * When a bound is reached, the entries that have not been used since the cache last had to make room are evicted, so
+ * the decisions of the active contexts and the frequent role sets stay cached. A context that is never invalidated,
+ * such as the context of an undeployed application, is eventually evicted once it is no longer used.
+ * </p>
+ *
+ * @see javax.security.jacc.PolicyConfiguration#commit()
+ * @see javax.security.jacc.PolicyConfiguration#removeRole(String)
+ * @see javax.security.jacc.PolicyConfiguration#delete()
+ */
+public abstract class PolicyDecisionCache
+{
+   /**
+    * <p>
+    * Creates a new {@code PolicyDecisionCache}.
+    * </p>
+    */
+   protected PolicyDecisionCache()
+   {
+   }
+
+   /**
+    * <p>
+    * Creates a new {@code PolicyDecisionCache} with the default bounds on the number of policy contexts and on the
+    * number of decisions cached per policy context.
+    * </p>
+    *
+    * @return the new {@code PolicyDecisionCache}.
+    */
+   public static PolicyDecisionCache newInstance()
+   {
+      return JaccAccess.get().newPolicyDecisionCache();
+   }
+
+   /**
+    * <p>
+    * Creates a new {@code PolicyDecisionCache}.
+    * </p>
+    *
+    * @param maxContexts
+    *           - the maximum number of policy contexts whose decisions are cached.
+    * @param maxDecisions
+    *           - the maximum number of decisions cached per policy context.
+    * @return the new {@code PolicyDecisionCache}.
+    */
+   public static PolicyDecisionCache newInstance(int maxContexts, int maxDecisions)
+   {
+      return JaccAccess.get().newPolicyDecisionCache(maxContexts, maxDecisions);
+   }
+
+   /**
+    * <p>
+    * Obtains the canonical {@code RoleSet} for the specified role names. Callers holding the same roles, in any order,
+    * obtain equal role sets, and usually the same instance.
+    * </p>
+    *
+    * @param roles
+    *           - the names of the roles held by a caller.
+    * @return the canonical {@code RoleSet}.
+    */
+   public abstract RoleSet roleSet(Collection<String> roles);
+
+   /**
+    * <p>
+    * Decides whether a permission is granted to the callers holding the specified roles in a policy context, returning
+    * the cached decision if there is one, and otherwise evaluating and caching it.
+    * </p>
+    *
+    * @param contextID
+    *           - the identifier of the policy context.
+    * @param roles
+    *           - the roles held by the caller, as obtained from {@link #roleSet(Collection)}.
+    * @param permission
+    *           - the permission being checked.
+    * @param evaluator
+    *           - the {@code Evaluator} called if the decision is not cached.
+    * @return {@code true} if the permission is granted; {@code false} otherwise.
+    */
+   public abstract boolean implies(String contextID, RoleSet roles, Permission permission, Evaluator evaluator);
+
+   /**
+    * <p>
+    * Discards the cached decisions of a policy context.
+    * </p>
+    *
+    * @param contextID
+    *           - the identifier of the policy context.
+    */
+   public abstract void invalidate(String contextID);
+
+   /**
+    * <p>
+    * Callback used to evaluate the decisions that are not cached.
+    * </p>
+    */
+   public interface Evaluator
+   {
+      /**
+       * <p>
+       * Evaluates whether a permission is granted to the callers holding a set of roles.
+       * </p>
+       *
+       * @param contextID
+       *           - the identifier of the policy context.
+       * @param roles
+       *           - the roles held by the caller.
+       * @param permission
+       *           - the permission being checked.
+       * @return {@code true} if the permission is granted; {@code false} otherwise.
+       */
+      boolean implies(String contextID, RoleSet roles, Permission permission);
+   }
+
+   /**
+    * <p>
+    * An immutable set of role names, used as the fingerprint of the callers holding those roles. Role sets are equal
+    * if they hold the same role names.
+    * </p>
+    */
+   public interface RoleSet
+   {
+      /**
+       * <p>
+       * Obtains the role names of this set.
+       * </p>
+       *
+       * @return an unmodifiable {@code Set} of role names.
+       */
+      Set<String> getRoles();
+   }
+}
@@ -0,0 +1,111 @@
+package org.jboss.jacc;
+
+import java.security.Permission;
+import java.security.PermissionCollection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.security.jacc.EJBRoleRefPermission;
+import javax.security.jacc.WebRoleRefPermission;
+
+/**
+ * <p>
+ * The role references of a single component (a servlet or an EJB), resolved against the role permissions of a policy
+ * context. For each role reference the table holds the roles that were granted the corresponding {@code
+ * WebRoleRefPermission} or {@code EJBRoleRefPermission}, so that a container can answer {@code isUserInRole} and
+ * {@code isCallerInRole} calls with a direct lookup instead of constructing and checking a permission.
+ * </p>
+ *
+ * <p>
+ * Tables are immutable and are meant to be rebuilt when the policy context is committed. They may be shared by
+ * concurrent threads.
+ * </p>
+ *
+ * @see WebRoleRefPermission
+ * @see EJBRoleRefPermission
+ */
+public final class RoleRefTable
+{
+   private final Map<String, Set<String>> roles = new HashMap<String, Set<String>>();
+
+   private RoleRefTable(String componentName, Class<? extends Permission> type,
+         Map<String, ? extends PermissionCollection> rolePermissions)
+   {
+      if (componentName == null)
+         throw new IllegalArgumentException("The component name may not be null");
+      if (rolePermissions == null)
+         throw new IllegalArgumentException("The role permissions may not be null");
+      for (Map.Entry<String, ? extends PermissionCollection> role : rolePermissions.entrySet())
+      {
+         Enumeration<Permission> elements = role.getValue().elements();
+         while (elements.hasMoreElements())
+         {
+            Permission permission = elements.nextElement();
+            if (type.isInstance(permission) && componentName.equals(permission.getName()))
+            {
+               Set<String> roles = this.roles.get(permission.getActions());
+               if (roles == null)
+               {
+                  roles = new LinkedHashSet<String>();
+                  this.roles.put(permission.getActions(), roles);
+               }
+               roles.add(role.getKey());
+            }
+         }
+      }
+      for (Map.Entry<String, Set<String>> entry : this.roles.entrySet())
+         entry.setValue(Collections.unmodifiableSet(entry.getValue()));
+   }
+
+   /**
+    * <p>
+    * Creates the role reference table of a servlet from its {@code WebRoleRefPermission} objects.
+    * </p>
+    *
+    * @param servletName
+    *           - the name of the servlet, as in the name of its {@code WebRoleRefPermission} objects.
+    * @param rolePermissions
+    *           - the permissions granted to each role of the policy context, keyed by role name.
+    * @return the role reference table of the servlet.
+    */
+   public static RoleRefTable forServlet(String servletName,
+         Map<String, ? extends PermissionCollection> rolePermissions)
+   {
+      return new RoleRefTable(servletName, WebRoleRefPermission.class, rolePermissions);
+   }
+
+   /**
+    * <p>
+    * Creates the role reference table of an EJB from its {@code EJBRoleRefPermission} objects.
+    * </p>
+    *
+    * @param ejbName
+    *           - the name of the EJB, as in the name of its {@code EJBRoleRefPermission} objects.
+    * @param rolePermissions
+    *           - the permissions granted to each role of the policy context, keyed by role name.
+    * @return the role reference table of the EJB.
+    */
+   public static RoleRefTable forBean(String ejbName, Map<String, ? extends PermissionCollection> rolePermissions)
+   {
+      return new RoleRefTable(ejbName, EJBRoleRefPermission.class, rolePermissions);
+   }
+
+   /**
+    * <p>
+    * Obtains the roles that are granted the specified role reference.
+    * </p>
+    *
+    * @param roleRef
+    *           - the role reference, as passed to {@code isUserInRole} or {@code isCallerInRole}.
+    * @return an unmodifiable {@code Set} of role names, empty if no role is granted the reference.
+    */
+   public Set<String> getRoles(String roleRef)
+   {
+      Set<String> roles = this.roles.get(roleRef);
+      return roles == null ? Collections.<String> emptySet() : roles;
+   }
+}
@@ -0,0 +1,125 @@
+package org.jboss.jacc;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * Assigns dense integer identifiers to the role names of a policy context. Identifiers are assigned in registration
+ * order, starting at 0, when the roles are configured, and are never reused, so a set of roles can be represented as a
+ * {@code BitSet} and the roles granting a permission can be matched against the roles held by a caller with a single
+ * bitwise intersection.
+ * </p>
+ *
+ * <p>
+ * Lookups do not block, and registrations may run concurrently with them.
+ * </p>
+ *
+ * @see CompiledWebPolicy.Decision#isGranted(BitSet)
+ * @see EJBMethodPolicyTable#isGranted(int, BitSet)
+ */
+public final class RoleRegistry
+{
+   private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+
+   private volatile String[] roles = new String[0];
+
+   /**
+    * <p>
+    * Registers a role, if it is not already registered.
+    * </p>
+    *
+    * @param role
+    *           - the name of the role. The value of this parameter must not be null.
+    * @return the identifier of the role.
+    */
+   public int register(String role)
+   {
+      if (role == null)
+         throw new IllegalArgumentException("The role name may not be null");
+      Integer id = this.ids.get(role);
+      if (id != null)
+         return id.intValue();
+      synchronized (this)
+      {
+         id = this.ids.get(role);
+         if (id == null)
+         {
+            String[] roles = Arrays.copyOf(this.roles, this.roles.length + 1);
+            roles[roles.length - 1] = role;
+            this.roles = roles;
+            id = Integer.valueOf(roles.length - 1);
+            this.ids.put(role, id);
+         }
+         return id.intValue();
+      }
+   }
+
+   /**
+    * <p>
+    * Obtains the identifier of a role.
+    * </p>
+    *
+    * @param role
+    *           - the name of the role.
+    * @return the identifier of the role, or -1 if the role is not registered.
+    */
+   public int getId(String role)
+   {
+      Integer id = role == null ? null : this.ids.get(role);
+      return id == null ? -1 : id.intValue();
+   }
+
+   /**
+    * <p>
+    * Obtains the name of the role with the specified identifier.
+    * </p>
+    *
+    * @param id
+    *           - the identifier of the role.
+    * @return the name of the role.
+    * @throws IndexOutOfBoundsException
+    *            if no role has the specified identifier.
+    */
+   public String getRole(int id)
+   {
+      return this.roles[id];
+   }
+
+   /**
+    * <p>
+    * Obtains the number of registered roles.
+    * </p>
+    *
+    * @return the number of roles.
+    */
+   public int size()
+   {
+      return this.roles.length;
+   }
+
+   /**
+    * <p>
+    * Converts a collection of role names, such as the roles held by a caller, to the corresponding set of identifiers.
+    * Roles that are not registered are not granted anything by the policy context, and are left out.
+    * </p>
+    *
+    * @param roles
+    *           - the names of the roles.
+    * @return a new {@code BitSet} holding the identifiers of the registered roles.
+    */
+   public BitSet toBitSet(Collection<String> roles)
+   {
+      BitSet bits = new BitSet(size());
+      for (String role : roles)
+      {
+         int id = getId(role);
+         if (id >= 0)
+            bits.set(id);
+      }
+      return bits;
+   }
+}
@@ -0,0 +1,79 @@
+package org.jboss.jacc;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * <p>
+ * Resolves the most specific of a set of Servlet URL patterns that matches a request path. The patterns are indexed by
+ * type when the resolver is created, and a path is resolved in a single pass, following the order of specificity of
+ * the Servlet specification:
+ * <ol>
+ * <li>an exact pattern equal to the path, then</li>
+ * <li>the longest path-prefix pattern ("/.../*") matching the path, down to the "/*" pattern, then</li>
+ * <li>an extension pattern ("*.xxx") matching the path, then</li>
+ * <li>the default pattern, "/".</li>
+ * </ol>
+ * </p>
+ *
+ * <p>
+ * Pattern matching follows the rules used by {@code WebResourcePermission} and {@code WebUserDataPermission}. Paths
+ * are context relative, as in the names of the permissions constructed from an {@code HttpServletRequest}. The
+ * resolvers returned by {@code newInstance} are immutable and may be shared by concurrent threads.
+ * </p>
+ *
+ * @see javax.security.jacc.WebResourcePermission
+ * @see javax.security.jacc.WebUserDataPermission
+ */
+public abstract class URLPatternResolver
+{
+   /**
+    * <p>
+    * Creates a new {@code URLPatternResolver}.
+    * </p>
+    */
+   protected URLPatternResolver()
+   {
+   }
+
+   /**
+    * <p>
+    * Creates a new {@code URLPatternResolver} for the specified URL patterns.
+    * </p>
+    *
+    * @param urlPatterns
+    *           - the URL patterns to be resolved against. Duplicate patterns are ignored. The value of this parameter
+    *           must not be null.
+    * @return the new {@code URLPatternResolver}.
+    */
+   public static URLPatternResolver newInstance(Collection<String> urlPatterns)
+   {
+      return JaccAccess.get().newURLPatternResolver(urlPatterns);
+   }
+
+   /**
+    * <p>
+    * Creates a new {@code URLPatternResolver} for the specified URL patterns.
+    * </p>
+    *
+    * @param urlPatterns
+    *           - the URL patterns to be resolved against. Duplicate patterns are ignored. The value of this parameter
+    *           must not be null.
+    * @return the new {@code URLPatternResolver}.
+    */
+   public static URLPatternResolver newInstance(String... urlPatterns)
+   {
+      return newInstance(urlPatterns == null ? null : Arrays.asList(urlPatterns));
+   }
+
+   /**
+    * <p>
+    * Returns the most specific URL pattern that matches the specified context relative path.
+    * </p>
+    *
+    * @param path
+    *           - the context relative request path. The value of this parameter must not be null.
+    * @return the most specific matching URL pattern, or {@code null} if none of the patterns matches the path.
+    */
+   public abstract String resolve(String path);
+}
@@ -0,0 +1,229 @@
+package org.jboss.jacc;
+
+import java.security.Permission;
+import java.security.PermissionCollection;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.security.jacc.WebResourcePermission;
+import javax.security.jacc.WebUserDataPermission;
+
+/**
+ * <p>
+ * Collects the {@code WebResourcePermission} and {@code WebUserDataPermission} statements of a policy context and
+ * compiles them into a {@code CompiledWebPolicy}. The methods of this class mirror the corresponding methods of the
+ * {@code PolicyConfiguration} interface, so that a {@code PolicyConfiguration} implementation can forward the
+ * statements it receives while the policy context is "open" and call {@link #compile()} when the policy context is
+ * committed. Permissions of other types are ignored.
+ * </p>
+ *
+ * <p>
+ * Role names are assigned identifiers by a {@code RoleRegistry} as they are configured. This class is safe for
+ * concurrent use.
+ * </p>
+ *
+ * @see CompiledWebPolicy
+ * @see javax.security.jacc.PolicyConfiguration
+ */
+public final class WebPolicyCompiler
+{
+   private final List<Permission> excluded = new ArrayList<Permission>();
+
+   private final List<Permission> unchecked = new ArrayList<Permission>();
+
+   private final Map<String, List<Permission>> roles = new LinkedHashMap<String, List<Permission>>();
+
+   private final RoleRegistry roleRegistry;
+
+   /**
+    * <p>
+    * Creates a new {@code WebPolicyCompiler} with its own {@code RoleRegistry}.
+    * </p>
+    */
+   public WebPolicyCompiler()
+   {
+      this(new RoleRegistry());
+   }
+
+   /**
+    * <p>
+    * Creates a new {@code WebPolicyCompiler} that assigns role identifiers with the specified registry, which may be
+    * shared with the other compiled policies of the same policy context.
+    * </p>
+    *
+    * @param roleRegistry
+    *           - the registry assigning the role identifiers. The value of this parameter must not be null.
+    */
+   public WebPolicyCompiler(RoleRegistry roleRegistry)
+   {
+      if (roleRegistry == null)
+         throw new IllegalArgumentException("The role registry may not be null");
+      this.roleRegistry = roleRegistry;
+   }
+
+   /**
+    * <p>
+    * Adds a single permission to the permissions granted to the specified role.
+    * </p>
+    *
+    * @param roleName
+    *           - the name of the role.
+    * @param permission
+    *           - the permission to be added. Non-web permissions are ignored.
+    */
+   public synchronized void addToRole(String roleName, Permission permission)
+   {
+      if (roleName == null)
+         throw new IllegalArgumentException("The role name may not be null");
+      if (isWebPermission(permission))
+         role(roleName).add(permission);
+   }
+
+   /**
+    * <p>
+    * Adds the permissions of a {@code PermissionCollection} to the permissions granted to the specified role.
+    * </p>
+    *
+    * @param roleName
+    *           - the name of the role.
+    * @param permissions
+    *           - the collection of permissions to be added. Non-web permissions are ignored.
+    */
+   public synchronized void addToRole(String roleName, PermissionCollection permissions)
+   {
+      if (roleName == null)
+         throw new IllegalArgumentException("The role name may not be null");
+      addAll(role(roleName), permissions);
+   }
+
+   /**
+    * <p>
+    * Adds a single permission to the unchecked permissions.
+    * </p>
+    *
+    * @param permission
+    *           - the permission to be added. Non-web permissions are ignored.
+    */
+   public synchronized void addToUncheckedPolicy(Permission permission)
+   {
+      if (isWebPermission(permission))
+         this.unchecked.add(permission);
+   }
+
+   /**
+    * <p>
+    * Adds the permissions of a {@code PermissionCollection} to the unchecked permissions.
+    * </p>
+    *
+    * @param permissions
+    *           - the collection of permissions to be added. Non-web permissions are ignored.
+    */
+   public synchronized void addToUncheckedPolicy(PermissionCollection permissions)
+   {
+      addAll(this.unchecked, permissions);
+   }
+
+   /**
+    * <p>
+    * Adds a single permission to the excluded permissions.
+    * </p>
+    *
+    * @param permission
+    *           - the permission to be added. Non-web permissions are ignored.
+    */
+   public synchronized void addToExcludedPolicy(Permission permission)
+   {
+      if (isWebPermission(permission))
+         this.excluded.add(permission);
+   }
+
+   /**
+    * <p>
+    * Adds the permissions of a {@code PermissionCollection} to the excluded permissions.
+    * </p>
+    *
+    * @param permissions
+    *           - the collection of permissions to be added. Non-web permissions are ignored.
+    */
+   public synchronized void addToExcludedPolicy(PermissionCollection permissions)
+   {
+      addAll(this.excluded, permissions);
+   }
+
+   /**
+    * <p>
+    * Removes a role and all the permissions granted to it.
+    * </p>
+    *
+    * @param roleName
+    *           - the name of the role to be removed.
+    */
+   public synchronized void removeRole(String roleName)
+   {
+      this.roles.remove(roleName);
+   }
+
+   /**
+    * <p>
+    * Removes all the unchecked permissions.
+    * </p>
+    */
+   public synchronized void removeUncheckedPolicy()
+   {
+      this.unchecked.clear();
+   }
+
+   /**
+    * <p>
+    * Removes all the excluded permissions.
+    * </p>
+    */
+   public synchronized void removeExcludedPolicy()
+   {
+      this.excluded.clear();
+   }
+
+   /**
+    * <p>
+    * Compiles the permissions collected so far into a {@code CompiledWebPolicy}. Later changes to this compiler do not
+    * affect the returned policy.
+    * </p>
+    *
+    * @return the compiled policy.
+    */
+   public synchronized CompiledWebPolicy compile()
+   {
+      return JaccAccess.get().newCompiledWebPolicy(this.excluded, this.unchecked, this.roles, this.roleRegistry);
+   }
+
+   private List<Permission> role(String roleName)
+   {
+      List<Permission> permissions = this.roles.get(roleName);
+      if (permissions == null)
+      {
+         this.roleRegistry.register(roleName);
+         permissions = new ArrayList<Permission>();
+         this.roles.put(roleName, permissions);
+      }
+      return permissions;
+   }
+
+   private static void addAll(List<Permission> list, PermissionCollection permissions)
+   {
+      Enumeration<Permission> elements = permissions.elements();
+      while (elements.hasMoreElements())
+      {
+         Permission permission = elements.nextElement();
+         if (isWebPermission(permission))
+            list.add(permission);
+      }
+   }
+
+   private static boolean isWebPermission(Permission permission)
+   {
+      return permission instanceof WebResourcePermission || permission instanceof WebUserDataPermission;
+   }
+}
@@ -0,0 +1,7 @@
+/**
+ * <p>
+ * This package contains the JBoss extensions of the Java Authorization Contract for Containers API, which are kept
+ * out of the {@code javax.security.jacc} package so that it only has the public members of the JACC API.
+ * </p>
+ */
+package org.jboss.jacc;
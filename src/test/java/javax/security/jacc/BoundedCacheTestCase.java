@@ -0,0 +1,70 @@
+/*
+ * JBoss, Home of Professional Open Source. Copyright 2010, Red Hat Middleware
+ * LLC, and individual contributors as indicated by the @author tags. See the
+ * copyright.txt file in the distribution for a full listing of individual
+ * contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this software; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA, or see the FSF
+ * site: http://www.fsf.org.
+ */
+package javax.security.jacc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit test the eviction of {@code BoundedCache}
+ */
+public class BoundedCacheTestCase {
+
+    @Test
+    public void testEviction() throws Exception {
+        BoundedCache<String, String> cache = new BoundedCache<String, String>(16);
+        String hot = cache.putIfAbsent("hot", "hot");
+        for (int i = 0; i < 1000; i++) {
+            // the hot entry is looked up between insertions of cold entries that are never looked up again
+            assertSame(hot, cache.get("hot"));
+            cache.putIfAbsent("cold" + i, "cold" + i);
+            assertTrue(cache.size() <= 16);
+        }
+        assertSame(hot, cache.get("hot"));
+        assertEquals("cold999", cache.get("cold999"));
+        assertNull(cache.get("cold0"));
+    }
+
+    @Test
+    public void testPutIfAbsentAndRemove() throws Exception {
+        BoundedCache<String, String> cache = new BoundedCache<String, String>(4);
+        assertEquals("a", cache.putIfAbsent("key", "a"));
+        assertEquals("a", cache.putIfAbsent("key", "b"));
+        assertEquals("a", cache.remove("key"));
+        assertNull(cache.get("key"));
+        assertEquals(0, cache.size());
+        assertEquals("b", cache.putIfAbsent("key", "b"));
+    }
+
+    @Test
+    public void testURLPatternSpecCache() throws Exception {
+        URLPatternSpec policy = URLPatternSpec.valueOf("/secure/*:/secure/public/*");
+        for (int i = 0; i < 5000; i++) {
+            assertSame(policy, URLPatternSpec.valueOf("/secure/*:/secure/public/*"));
+            URLPatternSpec.valueOf("/request/path/" + i);
+        }
+    }
+}
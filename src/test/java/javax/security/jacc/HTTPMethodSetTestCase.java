@@ -0,0 +1,109 @@
+/*
+ * JBoss, Home of Professional Open Source. Copyright 2010, Red Hat Middleware
+ * LLC, and individual contributors as indicated by the @author tags. See the
+ * copyright.txt file in the distribution for a full listing of individual
+ * contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this software; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA, or see the FSF
+ * site: http://www.fsf.org.
+ */
+package javax.security.jacc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * Unit test the bitmask {@code HTTPMethodSet} against the {@code TreeSet} of method names it replaces
+ */
+public class HTTPMethodSetTestCase {
+
+    private static final TreeSet<String> ALL_HTTP_METHODS = new TreeSet<String>(Arrays.asList("GET", "POST", "PUT",
+        "DELETE", "HEAD", "OPTIONS", "TRACE"));
+
+    private static final String[] METHOD_LISTS = { null, "", "GET", "POST,GET", "GET,GET,POST", "TRACE,DELETE",
+        "PATCH", "GET,PATCH", "PROPFIND,PATCH,GET", "DELETE,GET,HEAD,OPTIONS,POST,PUT,TRACE",
+        "DELETE,GET,HEAD,OPTIONS,POST,PUT,TRACE,PATCH", "get" };
+
+    @Test
+    public void testCanonicalForm() throws Exception {
+        for (String methods : METHOD_LISTS) {
+            HTTPMethodSet set = HTTPMethodSet.valueOf(methods);
+            TreeSet<String> reference = treeSet(methods);
+            assertEquals(methods, canonicalActions(reference), set.getActions());
+            assertEquals(methods, reference.hashCode(), set.hashCode());
+            String[] methodsArray = methods == null || methods.length() == 0 ? null : methods.split(",");
+            assertEquals(methods, set, HTTPMethodSet.valueOf(methodsArray));
+        }
+        assertSame(HTTPMethodSet.ALL_HTTP_METHODS, HTTPMethodSet.valueOf("DELETE,GET,HEAD,OPTIONS,POST,PUT,TRACE"));
+    }
+
+    @Test
+    public void testValueOfMethod() throws Exception {
+        assertSame(HTTPMethodSet.ALL_HTTP_METHODS, HTTPMethodSet.valueOfMethod(null));
+        assertSame(HTTPMethodSet.ALL_HTTP_METHODS, HTTPMethodSet.valueOfMethod(""));
+        for (String method : new String[] { "GET", "TRACE", "PATCH" }) {
+            assertEquals(HTTPMethodSet.valueOf(method), HTTPMethodSet.valueOfMethod(method));
+            assertEquals(method, HTTPMethodSet.valueOfMethod(method).getActions());
+        }
+        // the sets of the standard methods are shared
+        assertSame(HTTPMethodSet.valueOfMethod("GET"), HTTPMethodSet.valueOfMethod("GET"));
+    }
+
+    @Test
+    public void testContainsAllAndIntersects() throws Exception {
+        for (String first : METHOD_LISTS) {
+            for (String second : METHOD_LISTS) {
+                String pair = first + " / " + second;
+                HTTPMethodSet set = HTTPMethodSet.valueOf(first);
+                HTTPMethodSet other = HTTPMethodSet.valueOf(second);
+                TreeSet<String> reference = treeSet(first);
+                TreeSet<String> otherReference = treeSet(second);
+                assertEquals(pair, reference.containsAll(otherReference), set.containsAll(other));
+                assertEquals(pair, Collections.disjoint(reference, otherReference) == false, set.intersects(other));
+                assertEquals(pair, reference.equals(otherReference), set.equals(other));
+            }
+        }
+    }
+
+    /**
+     * The set of methods formerly built by the web permissions: an empty list stands for all HTTP methods.
+     */
+    private static TreeSet<String> treeSet(String methods) {
+        if (methods == null || methods.length() == 0)
+            return ALL_HTTP_METHODS;
+        return new TreeSet<String>(Arrays.asList(methods.split(",")));
+    }
+
+    /**
+     * The canonical actions formerly built by the web permissions from a set of methods.
+     */
+    private static String canonicalActions(TreeSet<String> methods) {
+        if (methods.equals(ALL_HTTP_METHODS))
+            return null;
+        StringBuilder actions = new StringBuilder();
+        for (String method : methods) {
+            if (actions.length() > 0)
+                actions.append(',');
+            actions.append(method);
+        }
+        return actions.toString();
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * JBoss, Home of Professional Open Source. Copyright 2010, Red Hat Middleware
+ * LLC, and individual contributors as indicated by the @author tags. See the
+ * copyright.txt file in the distribution for a full listing of individual
+ * contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this software; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA, or see the FSF
+ * site: http://www.fsf.org.
+ */
+package javax.security.jacc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.jacc.PolicyContextSupport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test the handling of the scoped binding by {@code PolicyContext}, with a binding that stands in for
+ * {@code ScopedValue} on the runtimes that do not provide it.
+ */
+public class ScopedBindingTestCase {
+
+    private ScopedBinding previous;
+
+    @Before
+    public void setUp() {
+        this.previous = PolicyContext.setScopedBinding(new InheritableBinding());
+    }
+
+    @After
+    public void tearDown() {
+        PolicyContext.setScopedBinding(this.previous);
+    }
+
+    @Test
+    public void testOwnerChanges() throws Exception {
+        final String[] seen = new String[3];
+        PolicyContextSupport.run("bound", "bound-data", new Runnable() {
+            public void run() {
+                seen[0] = PolicyContext.getContextID();
+                PolicyContext.setContextID("changed");
+                seen[1] = PolicyContext.getContextID();
+                PolicyContextSupport.Scope scope = PolicyContextSupport.enter("entered", null);
+                try {
+                    seen[2] = PolicyContext.getContextID();
+                } finally {
+                    scope.close();
+                }
+            }
+        });
+        assertEquals("bound", seen[0]);
+        assertEquals("changed", seen[1]);
+        assertEquals("entered", seen[2]);
+        // the binding does not leak into the policy context of the thread
+        assertNull(PolicyContext.getContextID());
+    }
+
+    @Test
+    public void testSubtask() throws Exception {
+        final Object[] seen = new Object[2];
+        PolicyContextSupport.run("bound", null, new Runnable() {
+            public void run() {
+                PolicyContext.setContextID("changed");
+                seen[0] = subtask(new Callable<Object>() {
+                    public Object call() {
+                        return PolicyContext.getContextID();
+                    }
+                });
+                seen[1] = subtask(new Callable<Object>() {
+                    public Object call() {
+                        try {
+                            PolicyContext.setContextID("subtask");
+                            return "set";
+                        } catch (IllegalStateException e) {
+                            return e;
+                        }
+                    }
+                });
+            }
+        });
+        // the subtasks see the bound frame, not the changes the task made to its own policy context
+        assertEquals("bound", seen[0]);
+        if (seen[1] instanceof IllegalStateException == false)
+            fail("Expected IllegalStateException for a subtask setting its policy context");
+    }
+
+    @Test
+    public void testSubtaskMemo() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        PolicyContextHandler handler = new PolicyContextHandler() {
+            public Object getContext(String key, Object data) {
+                calls.incrementAndGet();
+                return "context of " + data;
+            }
+
+            public String[] getKeys() {
+                return new String[] { "scoped.memoized" };
+            }
+
+            public boolean supports(String key) {
+                return "scoped.memoized".equals(key);
+            }
+        };
+        PolicyContextSupport.registerHandler("scoped.memoized", handler, true, true);
+        final Object[] seen = new Object[2];
+        PolicyContextSupport.run("bound", "request", new Runnable() {
+            public void run() {
+                try {
+                    seen[0] = PolicyContext.getContext("scoped.memoized");
+                } catch (PolicyContextException e) {
+                    throw new IllegalStateException(e);
+                }
+                seen[1] = subtask(new Callable<Object>() {
+                    public Object call() throws Exception {
+                        return PolicyContext.getContext("scoped.memoized");
+                    }
+                });
+            }
+        });
+        assertEquals("context of request", seen[0]);
+        assertEquals("context of request", seen[1]);
+        // the subtask shares the context objects memoized for the bound frame
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testSubtaskSnapshot() throws Exception {
+        final Object[] seen = new Object[1];
+        PolicyContextSupport.run("bound", null, new Runnable() {
+            public void run() {
+                seen[0] = subtask(new Callable<Object>() {
+                    public Object call() {
+                        return PolicyContextSupport.snapshot();
+                    }
+                });
+            }
+        });
+        PolicyContextSupport.Snapshot snapshot = (PolicyContextSupport.Snapshot) seen[0];
+        assertEquals("bound", snapshot.getContextID());
+        final String[] restored = new String[1];
+        snapshot.wrap(new Runnable() {
+            public void run() {
+                restored[0] = PolicyContext.getContextID();
+            }
+        }).run();
+        assertEquals("bound", restored[0]);
+        assertNull(PolicyContext.getContextID());
+    }
+
+    @Test
+    public void testUnbound() throws Exception {
+        // outside run, the policy context is the one of the thread
+        PolicyContext.setContextID("thread");
+        try {
+            assertEquals("thread", PolicyContext.getContextID());
+            Object bound = subtask(new Callable<Object>() {
+                public Object call() {
+                    return PolicyContext.getContextID();
+                }
+            });
+            assertNull(bound);
+        } finally {
+            PolicyContext.setContextID(null);
+        }
+        assertNull(PolicyContext.getContextID());
+    }
+
+    /**
+     * Runs a task on a new thread, which inherits the binding of the calling thread as a structured subtask would.
+     */
+    private static Object subtask(final Callable<Object> task) {
+        final Object[] result = new Object[1];
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    result[0] = task.call();
+                } catch (Exception e) {
+                    result[0] = e;
+                }
+            }
+        });
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        return result[0];
+    }
+
+    /**
+     * A binding inherited by the threads started within its task, in place of {@code ScopedValue}.
+     */
+    private static class InheritableBinding implements ScopedBinding {
+        private final InheritableThreadLocal<Object> value = new InheritableThreadLocal<Object>();
+
+        public Object current() {
+            return this.value.get();
+        }
+
+        public void run(Object value, Runnable task) {
+            Object previous = this.value.get();
+            this.value.set(value);
+            try {
+                task.run();
+            } finally {
+                this.value.set(previous);
+            }
+        }
+    }
+}
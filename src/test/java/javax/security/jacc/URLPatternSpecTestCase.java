@@ -0,0 +1,101 @@
+/*
+ * JBoss, Home of Professional Open Source. Copyright 2010, Red Hat Middleware
+ * LLC, and individual contributors as indicated by the @author tags. See the
+ * copyright.txt file in the distribution for a full listing of individual
+ * contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this software; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA, or see the FSF
+ * site: http://www.fsf.org.
+ */
+package javax.security.jacc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit test the qualifier matching of {@code URLPatternSpec} against the pattern by pattern evaluation it replaces
+ */
+public class URLPatternSpecTestCase {
+
+    private static final String[] SPECS = { "/", "/*", "/a/*", "/a/b/*", "*.jsp", "/a/b", "/a/x.jsp", "",
+        "/:/a/*", "/:/a/*:*.jsp", "/:*.jsp:/a/b", "/a/*:/a/b:/a/c", "/a/*:/a/b/*:/a/x.jsp", "/*:/a/*:/b/c",
+        "/a/*:/a/b/*:/a/bc", "*.jsp:/a/*:/b/x.jsp", "/:/a/b/*:/a/b/c:*.html", "/:/a/b:/a/bc:/a/b/c", "/:" };
+
+    private static final String[] PATHS = { "", "/a", "/a/b", "/a/b/c", "/a/bc", "/a/c", "/a/x.jsp", "/b/x.jsp",
+        "/b/c", "/x.html", "/a/b/x.html", "/x.jsp" };
+
+    @Test
+    public void testImplies() throws Exception {
+        for (String spec : SPECS) {
+            for (String other : SPECS) {
+                String pair = spec + " implies " + other;
+                assertEquals(pair, referenceImplies(spec, other), new URLPatternSpec(spec).implies(new URLPatternSpec(
+                    other)));
+            }
+        }
+    }
+
+    @Test
+    public void testImpliesPath() throws Exception {
+        for (String spec : SPECS) {
+            URLPatternSpec urlSpec = new URLPatternSpec(spec);
+            for (String path : PATHS) {
+                // a request path is the single exact pattern of the permission built for the request
+                assertEquals(spec + " implies " + path, urlSpec.implies(new URLPatternSpec(path)), urlSpec
+                    .impliesPath(path));
+            }
+        }
+    }
+
+    @Test
+    public void testQualifierOrder() throws Exception {
+        URLPatternSpec spec = new URLPatternSpec("/a/*:/a/b:/a/c/*:/a/x.jsp");
+        URLPatternSpec reordered = new URLPatternSpec("/a/*:/a/x.jsp:/a/c/*:/a/b:/a/b");
+        assertEquals(spec, reordered);
+        assertEquals(spec.hashCode(), reordered.hashCode());
+        assertTrue(spec.implies(reordered));
+        assertTrue(reordered.implies(spec));
+        assertFalse(spec.equals(new URLPatternSpec("/a/*:/a/b:/a/c/*")));
+    }
+
+    /**
+     * The former evaluation of {@code URLPatternSpec.implies}, matching every pair of patterns.
+     */
+    private static boolean referenceImplies(String spec, String other) {
+        String[] patterns = spec.split(":");
+        String[] otherPatterns = other.split(":");
+        URLPattern otherFirst = new URLPattern(otherPatterns.length == 0 ? "" : otherPatterns[0]);
+        if (new URLPattern(patterns.length == 0 ? "" : patterns[0]).matches(otherFirst) == false)
+            return false;
+        for (int i = 1; i < patterns.length; i++) {
+            if (new URLPattern(patterns[i]).matches(otherFirst))
+                return false;
+        }
+        // a spec has a (possibly empty) URLPatternList as soon as its first pattern is followed by a colon
+        if (other.indexOf(':') > 0) {
+            for (int i = 1; i < patterns.length; i++) {
+                boolean matched = false;
+                for (int j = 1; j < otherPatterns.length && matched == false; j++)
+                    matched = new URLPattern(patterns[i]).matches(new URLPattern(otherPatterns[j]));
+                if (matched == false)
+                    return false;
+            }
+        }
+        return true;
+    }
+}
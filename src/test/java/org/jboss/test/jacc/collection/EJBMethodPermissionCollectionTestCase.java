@@ -0,0 +1,124 @@
+/*
+ * JBoss, Home of Professional Open Source. Copyright 2010, Red Hat Middleware
+ * LLC, and individual contributors as indicated by the @author tags. See the
+ * copyright.txt file in the distribution for a full listing of individual
+ * contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this software; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA, or see the FSF
+ * site: http://www.fsf.org.
+ */
+package org.jboss.test.jacc.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.security.PermissionCollection;
+import java.util.Collections;
+
+import javax.security.jacc.EJBMethodPermission;
+import javax.security.jacc.WebResourcePermission;
+
+import org.junit.Test;
+
+/**
+ * Unit test the indexed {@code PermissionCollection} of {@code EJBMethodPermission}
+ */
+public class EJBMethodPermissionCollectionTestCase {
+
+    private static final EJBMethodPermission[] GRANTED = {
+        new EJBMethodPermission("account", "deposit,Local,int"),
+        new EJBMethodPermission("account", "getBalance"),
+        new EJBMethodPermission("account", ",Remote"),
+        new EJBMethodPermission("account", ",,java.lang.String"),
+        new EJBMethodPermission("teller", null),
+        new EJBMethodPermission("teller", "close,Home")
+    };
+
+    private static final String[] NAMES = { "account", "teller", "other" };
+
+    private static final String[] METHOD_SPECS = { null, "deposit", "deposit,Local", "deposit,Local,int",
+        "deposit,Remote,int", "deposit,Local,long", "deposit,,int", "getBalance,Local,", "close,Home,",
+        "close,LocalHome,", "find,Remote,java.lang.String", "find,Local,java.lang.String", ",Local",
+        ",,java.lang.String" };
+
+    @Test
+    public void testImplies() throws Exception {
+        PermissionCollection pc = newCollection();
+
+        assertTrue(pc.implies(new EJBMethodPermission("account", "deposit,Local,int")));
+        assertFalse(pc.implies(new EJBMethodPermission("account", "deposit,Local,long")));
+        // the wildcard slots of each level are searched as well
+        assertTrue(pc.implies(new EJBMethodPermission("account", "getBalance,ServiceEndpoint,")));
+        assertTrue(pc.implies(new EJBMethodPermission("account", "withdraw,Remote,long")));
+        assertTrue(pc.implies(new EJBMethodPermission("account", "find,Local,java.lang.String")));
+        assertTrue(pc.implies(new EJBMethodPermission("teller", "anything,Local,")));
+        assertFalse(pc.implies(new EJBMethodPermission("other", "deposit,Local,int")));
+        assertFalse(pc.implies(new WebResourcePermission("/account", "GET")));
+
+        assertEquivalent(pc);
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(newCollection());
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        PermissionCollection pc = (PermissionCollection) in.readObject();
+
+        // the index is rebuilt when the collection is read
+        assertEquals(GRANTED.length, Collections.list(pc.elements()).size());
+        assertEquivalent(pc);
+    }
+
+    @Test
+    public void testAddOtherPermission() throws Exception {
+        try {
+            newCollection().add(new WebResourcePermission("/account", "GET"));
+            fail("Expected IllegalArgumentException for a permission that is not an EJBMethodPermission");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static PermissionCollection newCollection() {
+        PermissionCollection pc = GRANTED[0].newPermissionCollection();
+        for (EJBMethodPermission permission : GRANTED)
+            pc.add(permission);
+        return pc;
+    }
+
+    /**
+     * Checks the collection decides as the permissions it holds, evaluated one by one, do.
+     */
+    private static void assertEquivalent(PermissionCollection pc) {
+        for (String name : NAMES) {
+            for (String methodSpec : METHOD_SPECS) {
+                EJBMethodPermission permission = new EJBMethodPermission(name, methodSpec);
+                boolean expected = false;
+                for (EJBMethodPermission granted : GRANTED)
+                    expected |= granted.implies(permission);
+                assertEquals(permission.toString(), expected, pc.implies(permission));
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * JBoss, Home of Professional Open Source. Copyright 2010, Red Hat Middleware
+ * LLC, and individual contributors as indicated by the @author tags. See the
+ * copyright.txt file in the distribution for a full listing of individual
+ * contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this software; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA, or see the FSF
+ * site: http://www.fsf.org.
+ */
+package org.jboss.test.jacc.collection;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.security.PermissionCollection;
+
+import javax.security.jacc.WebResourcePermission;
+
+import org.junit.Test;
+
+/**
+ * Unit test the indexed {@code PermissionCollection} of {@code WebResourcePermission}
+ */
+public class WebResourcePermissionCollectionTestCase {
+
+    @Test
+    public void testImplies() throws Exception {
+        PermissionCollection pc = new WebResourcePermission("/", "GET").newPermissionCollection();
+        pc.add(new WebResourcePermission("/exact", "GET"));
+        pc.add(new WebResourcePermission("/a/b/*", "POST"));
+        pc.add(new WebResourcePermission("*.jsp", "PUT"));
+        pc.add(new WebResourcePermission("/:/secure/*", "DELETE"));
+
+        // exact patterns
+        assertTrue(pc.implies(new WebResourcePermission("/exact", "GET")));
+        assertFalse(pc.implies(new WebResourcePermission("/exact/more", "GET")));
+
+        // path-prefix patterns match on path segment boundaries only
+        assertTrue(pc.implies(new WebResourcePermission("/a/b", "POST")));
+        assertTrue(pc.implies(new WebResourcePermission("/a/b/c/d", "POST")));
+        assertTrue(pc.implies(new WebResourcePermission("/a/b/c/*", "POST")));
+        assertFalse(pc.implies(new WebResourcePermission("/a/bc", "POST")));
+        assertFalse(pc.implies(new WebResourcePermission("/a/b/c", "GET")));
+
+        // extension patterns
+        assertTrue(pc.implies(new WebResourcePermission("/x/y.jsp", "PUT")));
+        assertTrue(pc.implies(new WebResourcePermission("*.jsp", "PUT")));
+        assertFalse(pc.implies(new WebResourcePermission("/x/y.jspx", "PUT")));
+
+        // the default pattern honours its URLPatternList
+        assertTrue(pc.implies(new WebResourcePermission("/public/page", "DELETE")));
+        assertFalse(pc.implies(new WebResourcePermission("/secure/page", "DELETE")));
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * JBoss, Home of Professional Open Source. Copyright 2010, Red Hat Middleware
+ * LLC, and individual contributors as indicated by the @author tags. See the
+ * copyright.txt file in the distribution for a full listing of individual
+ * contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this software; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA, or see the FSF
+ * site: http://www.fsf.org.
+ */
+package org.jboss.test.jacc.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.security.PermissionCollection;
+
+import javax.security.jacc.WebUserDataPermission;
+
+import org.junit.Test;
+
+/**
+ * Unit test the transport aware {@code PermissionCollection} of {@code WebUserDataPermission}
+ */
+public class WebUserDataPermissionCollectionTestCase {
+
+    private static final WebUserDataPermission[] GRANTED = {
+        new WebUserDataPermission("/public/*", "GET,POST"),
+        new WebUserDataPermission("/secure/*", "GET,POST:CONFIDENTIAL"),
+        new WebUserDataPermission("/signed/*", "PUT:INTEGRAL"),
+        new WebUserDataPermission("*.jsp", ":CONFIDENTIAL"),
+        new WebUserDataPermission("/:/secure/*:/signed/*", (String) null)
+    };
+
+    private static final String[] PATTERNS = { "/public/index.html", "/secure/account", "/signed/form", "/x/page.jsp",
+        "/other", "/secure/*", "*.jsp" };
+
+    private static final String[] ACTIONS = { null, "GET", "POST", "PUT", "GET:CONFIDENTIAL", "PUT:INTEGRAL",
+        "PUT:CONFIDENTIAL", "GET,POST:CONFIDENTIAL", ":INTEGRAL", "DELETE:NONE" };
+
+    @Test
+    public void testImplies() throws Exception {
+        PermissionCollection pc = newCollection();
+
+        // a permission requiring a transport type only applies to requests made with it
+        assertTrue(pc.implies(new WebUserDataPermission("/secure/account", "GET:CONFIDENTIAL")));
+        assertFalse(pc.implies(new WebUserDataPermission("/secure/account", "GET")));
+        assertFalse(pc.implies(new WebUserDataPermission("/signed/form", "PUT:CONFIDENTIAL")));
+        assertTrue(pc.implies(new WebUserDataPermission("/signed/form", "PUT:INTEGRAL")));
+
+        // a permission with transport type "NONE" applies to any transport
+        assertTrue(pc.implies(new WebUserDataPermission("/public/index.html", "GET:CONFIDENTIAL")));
+        assertTrue(pc.implies(new WebUserDataPermission("/other", "DELETE:INTEGRAL")));
+
+        assertEquivalent(pc);
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(newCollection());
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+
+        // the indexes are rebuilt when the collection is read
+        assertEquivalent((PermissionCollection) in.readObject());
+    }
+
+    private static PermissionCollection newCollection() {
+        PermissionCollection pc = GRANTED[0].newPermissionCollection();
+        for (WebUserDataPermission permission : GRANTED)
+            pc.add(permission);
+        return pc;
+    }
+
+    /**
+     * Checks the collection decides as the permissions it holds, evaluated one by one, do.
+     */
+    private static void assertEquivalent(PermissionCollection pc) {
+        for (String pattern : PATTERNS) {
+            for (String actions : ACTIONS) {
+                WebUserDataPermission permission = new WebUserDataPermission(pattern, actions);
+                boolean expected = false;
+                for (WebUserDataPermission granted : GRANTED)
+                    expected |= granted.implies(permission);
+                assertEquals(permission.toString(), expected, pc.implies(permission));
+            }
+        }
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * JBoss, Home of Professional Open Source. Copyright 2010, Red Hat Middleware
+ * LLC, and individual contributors as indicated by the @author tags. See the
+ * copyright.txt file in the distribution for a full listing of individual
+ * contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this software; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA, or see the FSF
+ * site: http://www.fsf.org.
+ */
+package org.jboss.test.jacc.context;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.security.jacc.PolicyContext;
+import javax.security.jacc.PolicyContextHandler;
+
+import org.jboss.jacc.PolicyContextSupport;
+import org.junit.Test;
+
+/**
+ * Unit test the thread-scoped state of {@code PolicyContext}
+ */
+public class PolicyContextTestCase {
+
+    @Test
+    public void testScope() throws Exception {
+        PolicyContext.setContextID("outer");
+        PolicyContext.setHandlerData("outer-data");
+        try {
+            PolicyContextSupport.Scope scope = PolicyContextSupport.enter("inner", null);
+            try {
+                assertEquals("inner", PolicyContext.getContextID());
+                PolicyContextSupport.Scope nested = PolicyContextSupport.enter("nested", "nested-data");
+                try {
+                    assertEquals("nested", PolicyContext.getContextID());
+                } finally {
+                    nested.close();
+                }
+                assertEquals("inner", PolicyContext.getContextID());
+            } finally {
+                scope.close();
+            }
+            assertEquals("outer", PolicyContext.getContextID());
+
+            // closing a scope again does not restore anything
+            PolicyContext.setContextID("changed");
+            scope.close();
+            assertEquals("changed", PolicyContext.getContextID());
+        } finally {
+            PolicyContext.setContextID(null);
+            PolicyContext.setHandlerData(null);
+        }
+        assertNull(PolicyContext.getContextID());
+    }
+
+    @Test
+    public void testRun() throws Exception {
+        final String[] seen = new String[2];
+        PolicyContext.setContextID("outer");
+        try {
+            PolicyContextSupport.run("task", "task-data", new Runnable() {
+                public void run() {
+                    seen[0] = PolicyContext.getContextID();
+                    // changes made by the task are undone when it completes
+                    PolicyContext.setContextID("changed");
+                    seen[1] = PolicyContext.getContextID();
+                }
+            });
+            assertEquals("task", seen[0]);
+            assertEquals("changed", seen[1]);
+            assertEquals("outer", PolicyContext.getContextID());
+
+            try {
+                PolicyContextSupport.run("failing", null, new Runnable() {
+                    public void run() {
+                        throw new IllegalStateException("failed");
+                    }
+                });
+                fail("Expected the exception of the task");
+            } catch (IllegalStateException e) {
+                assertEquals("failed", e.getMessage());
+            }
+            assertEquals("outer", PolicyContext.getContextID());
+        } finally {
+            PolicyContext.setContextID(null);
+        }
+    }
+
+    @Test
+    public void testCall() throws Exception {
+        String contextID = PolicyContextSupport.call("task", null, new Callable<String>() {
+            public String call() {
+                return PolicyContext.getContextID();
+            }
+        });
+        assertEquals("task", contextID);
+        assertNull(PolicyContext.getContextID());
+
+        try {
+            PolicyContextSupport.call("failing", null, new Callable<String>() {
+                public String call() throws Exception {
+                    throw new IOException("failed");
+                }
+            });
+            fail("Expected the exception of the task");
+        } catch (IOException e) {
+            assertEquals("failed", e.getMessage());
+        }
+        assertNull(PolicyContext.getContextID());
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Callable<String> contextID = new Callable<String>() {
+                public String call() {
+                    return PolicyContext.getContextID();
+                }
+            };
+            PolicyContextSupport.Scope scope = PolicyContextSupport.enter("async", null);
+            PolicyContextSupport.Snapshot snapshot;
+            try {
+                snapshot = PolicyContextSupport.snapshot();
+            } finally {
+                scope.close();
+            }
+            assertEquals("async", snapshot.getContextID());
+            assertEquals("async", executor.submit(snapshot.wrap(contextID)).get());
+
+            // the worker thread gets its own policy context back once the task completes
+            assertNull(executor.submit(contextID).get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testMemoizedHandler() throws Exception {
+        final int[] calls = new int[1];
+        PolicyContextHandler handler = new PolicyContextHandler() {
+            public Object getContext(String key, Object data) {
+                calls[0]++;
+                return "context of " + data;
+            }
+
+            public String[] getKeys() {
+                return new String[] { "memoized" };
+            }
+
+            public boolean supports(String key) {
+                return "memoized".equals(key);
+            }
+        };
+        PolicyContextSupport.registerHandler("memoized", handler, true, true);
+        try {
+            PolicyContext.setHandlerData("request");
+            assertEquals("context of request", PolicyContext.getContext("memoized"));
+            assertEquals("context of request", PolicyContext.getContext("memoized"));
+            assertEquals(1, calls[0]);
+
+            // new handler data discards the memoized context objects
+            PolicyContext.setHandlerData("request");
+            assertEquals("context of request", PolicyContext.getContext("memoized"));
+            assertEquals(2, calls[0]);
+
+            // scopes sharing the same handler data do not share the memoized context objects
+            PolicyContextSupport.Scope first = PolicyContextSupport.enter("first", null);
+            try {
+                assertEquals("context of null", PolicyContext.getContext("memoized"));
+                assertEquals("context of null", PolicyContext.getContext("memoized"));
+                assertEquals(3, calls[0]);
+            } finally {
+                first.close();
+            }
+            PolicyContextSupport.Scope second = PolicyContextSupport.enter("second", null);
+            try {
+                assertEquals("context of null", PolicyContext.getContext("memoized"));
+                assertEquals(4, calls[0]);
+            } finally {
+                second.close();
+            }
+
+            // the context object memoized before entering the scopes is still current
+            assertEquals("context of request", PolicyContext.getContext("memoized"));
+            assertEquals(4, calls[0]);
+        } finally {
+            PolicyContext.setHandlerData(null);
+        }
+
+        // a thread that has not set its policy context does not memoize
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Callable<Object> context = new Callable<Object>() {
+                public Object call() throws Exception {
+                    return PolicyContext.getContext("memoized");
+                }
+            };
+            assertEquals("context of null", executor.submit(context).get());
+            assertEquals("context of null", executor.submit(context).get());
+            assertEquals(6, calls[0]);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testHandlerDataSupplier() throws Exception {
+        PolicyContext.registerHandler("data", new PolicyContextHandler() {
+            public Object getContext(String key, Object data) {
+                return data;
+            }
+
+            public String[] getKeys() {
+                return new String[] { "data" };
+            }
+
+            public boolean supports(String key) {
+                return "data".equals(key);
+            }
+        }, true);
+        final int[] calls = new int[1];
+        PolicyContextSupport.HandlerDataSupplier supplier = new PolicyContextSupport.HandlerDataSupplier() {
+            public Object getHandlerData() {
+                calls[0]++;
+                return "supplied";
+            }
+        };
+        try {
+            // the supplier is not called as long as no handler is activated
+            PolicyContextSupport.setHandlerDataSupplier(supplier);
+            PolicyContext.setContextID("supplier");
+            assertEquals("supplier", PolicyContext.getContextID());
+            assertEquals(0, calls[0]);
+
+            assertEquals("supplied", PolicyContext.getContext("data"));
+            assertEquals("supplied", PolicyContext.getContext("data"));
+            assertEquals(1, calls[0]);
+
+            PolicyContextSupport.setHandlerDataSupplier(null);
+            assertNull(PolicyContext.getContext("data"));
+        } finally {
+            PolicyContext.setContextID(null);
+            PolicyContext.setHandlerData(null);
+        }
+    }
+
+    @Test
+    public void testHandle() throws Exception {
+        PolicyContextSupport.Handle handle = PolicyContextSupport.getHandle("handle");
+        assertEquals("handle", handle.getKey());
+        try {
+            handle.getContext();
+            fail("Expected IllegalArgumentException for a key without handler");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        KeyHandler first = new KeyHandler("handle", "first");
+        PolicyContext.registerHandler("handle", first, true);
+        assertEquals("first", handle.getContext());
+        assertEquals("first", handle.getContext());
+        assertEquals(1, first.supportsCalls);
+
+        // replacing the handler makes the handle resolve the key again
+        KeyHandler second = new KeyHandler("handle", "second");
+        PolicyContext.registerHandler("handle", second, true);
+        assertEquals("second", handle.getContext());
+        assertEquals(1, second.supportsCalls);
+
+        PolicyContext.registerHandler("handle", new KeyHandler("other", "other"), true);
+        try {
+            handle.getContext();
+            fail("Expected IllegalArgumentException for a handler that does not support the key");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRegisterHandler() throws Exception {
+        KeyHandler original = new KeyHandler("register", "original");
+        PolicyContext.registerHandler("register", original, true);
+        Set<?> keys = PolicyContext.getHandlerKeys();
+        assertTrue(keys.contains("register"));
+        try {
+            keys.remove("register");
+            fail("Expected UnsupportedOperationException for the handler keys");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+
+        // the keys are a snapshot, unaffected by later registrations
+        PolicyContext.registerHandler("register.later", new KeyHandler("register.later", "later"), true);
+        assertFalse(keys.contains("register.later"));
+        assertTrue(PolicyContext.getHandlerKeys().contains("register.later"));
+
+        // a rejected registration keeps the registered handler
+        try {
+            PolicyContext.registerHandler("register", new KeyHandler("register", "rejected"), false);
+            fail("Expected IllegalArgumentException for an existing key");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertEquals("original", PolicyContext.getContext("register"));
+
+        try {
+            PolicyContext.registerHandler(null, original, true);
+            fail("Expected IllegalArgumentException for a null key");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            PolicyContext.registerHandler("register.null", null, true);
+            fail("Expected IllegalArgumentException for a null handler");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertFalse(PolicyContext.getHandlerKeys().contains("register.null"));
+    }
+
+    private static class KeyHandler implements PolicyContextHandler {
+        private final String key;
+        private final Object context;
+        int supportsCalls;
+
+        KeyHandler(String key, Object context) {
+            this.key = key;
+            this.context = context;
+        }
+
+        public Object getContext(String key, Object data) {
+            return this.context;
+        }
+
+        public String[] getKeys() {
+            return new String[] { this.key };
+        }
+
+        public boolean supports(String key) {
+            this.supportsCalls++;
+            return this.key.equals(key);
+        }
+    }
+}
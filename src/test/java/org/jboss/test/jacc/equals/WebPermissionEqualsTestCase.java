@@ -0,0 +1,98 @@
+/*
+ * JBoss, Home of Professional Open Source. Copyright 2010, Red Hat Middleware
+ * LLC, and individual contributors as indicated by the @author tags. See the
+ * copyright.txt file in the distribution for a full listing of individual
+ * contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this software; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA, or see the FSF
+ * site: http://www.fsf.org.
+ */
+package org.jboss.test.jacc.equals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.security.Permission;
+
+import javax.security.jacc.WebResourcePermission;
+import javax.security.jacc.WebUserDataPermission;
+
+import org.junit.Test;
+
+/**
+ * Unit test the equality and hash codes of the web permissions
+ */
+public class WebPermissionEqualsTestCase {
+
+    @Test
+    public void testHashCode() throws Exception {
+        // the hash code does not depend on the order or duplication of qualifiers and HTTP methods
+        WebResourcePermission resource = new WebResourcePermission("/a/*:/a/b:/a/c/*", "POST,GET");
+        WebResourcePermission sameResource = new WebResourcePermission("/a/*:/a/c/*:/a/b:/a/b", "GET,POST,GET");
+        assertEquals(resource, sameResource);
+        assertEquals(resource.hashCode(), sameResource.hashCode());
+        assertEquals(resource.hashCode(), resource.hashCode());
+        assertEquals(new WebResourcePermission("/", (String) null).hashCode(), new WebResourcePermission(null,
+            "DELETE,GET,HEAD,OPTIONS,POST,PUT,TRACE").hashCode());
+
+        WebUserDataPermission userData = new WebUserDataPermission("/:/a/*", "PUT,GET:CONFIDENTIAL");
+        WebUserDataPermission sameUserData = new WebUserDataPermission("/:/a/*", "GET,PUT:CONFIDENTIAL");
+        assertEquals(userData, sameUserData);
+        assertEquals(userData.hashCode(), sameUserData.hashCode());
+
+        // the cached hash code is recomputed for deserialized permissions
+        assertEquals(resource.hashCode(), serialize(resource).hashCode());
+        assertEquals(userData.hashCode(), serialize(userData).hashCode());
+    }
+
+    @Test
+    public void testEquals() throws Exception {
+        // permissions built from an HTTP method exception list are equal to themselves and to identical copies
+        WebResourcePermission excepted = new WebResourcePermission("/a/*", "!GET");
+        assertEquals(excepted, excepted);
+        assertEquals(excepted, new WebResourcePermission("/a/*", "!GET"));
+        assertFalse(excepted.equals(new WebResourcePermission("/a/*", "!POST")));
+        assertFalse(excepted.equals(new WebResourcePermission("/a/*", "GET")));
+        WebUserDataPermission exceptedUserData = new WebUserDataPermission("/a/*", "!GET:CONFIDENTIAL");
+        assertEquals(exceptedUserData, new WebUserDataPermission("/a/*", "!GET:CONFIDENTIAL"));
+
+        // permissions requiring different transport types are never equal
+        WebUserDataPermission confidential = new WebUserDataPermission("/a/*", "GET:CONFIDENTIAL");
+        assertFalse(confidential.equals(new WebUserDataPermission("/a/*", "GET:INTEGRAL")));
+        assertFalse(confidential.equals(new WebUserDataPermission("/a/*", "GET")));
+        assertEquals(new WebUserDataPermission("/a/*", "GET"), new WebUserDataPermission("/a/*", "GET:NONE"));
+
+        // permissions with different canonical forms are not equal
+        WebResourcePermission resource = new WebResourcePermission("/a/*:/a/b", "GET");
+        assertFalse(resource.equals(new WebResourcePermission("/b/*:/b/a", "GET")));
+        assertFalse(resource.equals(new WebResourcePermission("/a/*:/a/b", "GET,POST")));
+        assertFalse(resource.equals(new WebUserDataPermission("/a/*:/a/b", "GET")));
+    }
+
+    private static Permission serialize(Permission permission) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(permission);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        Permission read = (Permission) in.readObject();
+        assertEquals(permission, read);
+        return read;
+    }
+}
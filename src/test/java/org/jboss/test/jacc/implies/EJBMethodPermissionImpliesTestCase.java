@@ -0,0 +1,147 @@
+/*
+ * JBoss, Home of Professional Open Source. Copyright 2010, Red Hat Middleware
+ * LLC, and individual contributors as indicated by the @author tags. See the
+ * copyright.txt file in the distribution for a full listing of individual
+ * contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this software; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA, or see the FSF
+ * site: http://www.fsf.org.
+ */
+package org.jboss.test.jacc.implies;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import javax.security.jacc.EJBMethodPermission;
+
+import org.junit.Test;
+
+/**
+ * Unit test the equality and implication of {@code EJBMethodPermission}
+ */
+public class EJBMethodPermissionImpliesTestCase {
+
+    public interface Grid {
+        void fill(int[][] cells, String[] labels, Map.Entry<String, long[]> entry, long value);
+
+        int size();
+    }
+
+    @Test
+    public void testEqualsAndHashCode() throws Exception {
+        EJBMethodPermission perm = new EJBMethodPermission("Bean", "update,Remote,java.lang.String,int");
+        EJBMethodPermission same = new EJBMethodPermission("Bean", "update", "Remote", new String[] {
+                "java.lang.String", "int" });
+        assertEquals(perm, same);
+        assertEquals(perm.hashCode(), same.hashCode());
+
+        // the bean name takes part in both equality and the hash code
+        EJBMethodPermission otherBean = new EJBMethodPermission("OtherBean", "update,Remote,java.lang.String,int");
+        assertFalse(perm.equals(otherBean));
+        assertFalse(perm.hashCode() == otherBean.hashCode());
+
+        // non standard interfaces compare by name
+        EJBMethodPermission custom = new EJBMethodPermission("Bean", "update,Custom");
+        assertEquals(custom, new EJBMethodPermission("Bean", "update,Custom"));
+        assertFalse(custom.equals(new EJBMethodPermission("Bean", "update,Remote")));
+        assertFalse(perm.equals(new EJBMethodPermission("Bean", "update,Local,java.lang.String,int")));
+        assertFalse(perm.equals(new EJBMethodPermission("Bean", "update,Remote,java.lang.String")));
+    }
+
+    @Test
+    public void testImplies() throws Exception {
+        EJBMethodPermission perm = new EJBMethodPermission("Bean", "update,Remote,java.lang.String,int");
+        assertTrue(new EJBMethodPermission("Bean", (String) null).implies(perm));
+        assertTrue(new EJBMethodPermission("Bean", "update").implies(perm));
+        assertTrue(new EJBMethodPermission("Bean", ",Remote").implies(perm));
+        assertTrue(new EJBMethodPermission("Bean", ",,java.lang.String,int").implies(perm));
+        assertFalse(new EJBMethodPermission("Bean", ",Local").implies(perm));
+        assertFalse(new EJBMethodPermission("Bean", ",Custom").implies(perm));
+        assertFalse(new EJBMethodPermission("Bean", ",,java.lang.String").implies(perm));
+        assertFalse(new EJBMethodPermission("OtherBean", (String) null).implies(perm));
+
+        // an empty signature denotes the methods without parameters
+        EJBMethodPermission noArgs = new EJBMethodPermission("Bean", "reset", "Local", new String[0]);
+        assertTrue(new EJBMethodPermission("Bean", "reset,Local,").implies(noArgs));
+        assertFalse(new EJBMethodPermission("Bean", "reset,Local,int").implies(noArgs));
+    }
+
+    @Test
+    public void testMethodSignature() throws Exception {
+        Method fill = Grid.class.getMethod("fill", int[][].class, String[].class, Map.Entry.class, long.class);
+        EJBMethodPermission perm = new EJBMethodPermission("Bean", "Local", fill);
+        // arrays are written as the component type name followed by one pair of brackets per dimension
+        assertEquals("fill,Local,int[][],java.lang.String[],java.util.Map$Entry,long", perm.getActions());
+        assertEquals(new EJBMethodPermission("Bean", "fill,Local,int[][],java.lang.String[],java.util.Map$Entry,long"),
+            perm);
+
+        // the signature computed for a method is reused by the permissions built for it later
+        EJBMethodPermission again = new EJBMethodPermission("Other", "Local", fill);
+        assertEquals("fill,Local,int[][],java.lang.String[],java.util.Map$Entry,long", again.getActions());
+
+        Method size = Grid.class.getMethod("size");
+        EJBMethodPermission noArgs = new EJBMethodPermission("Bean", "Remote", size);
+        assertEquals(new EJBMethodPermission("Bean", "size,Remote,"), noArgs);
+        assertFalse(noArgs.equals(new EJBMethodPermission("Bean", "size,Remote")));
+    }
+
+    @Test
+    public void testMethodSpecParsing() throws Exception {
+        // a comma right after the method name denotes no method interface
+        EJBMethodPermission perm = new EJBMethodPermission("Bean", "update,");
+        assertEquals(new EJBMethodPermission("Bean", "update"), perm);
+        assertEquals("update", perm.getActions());
+
+        // an empty method interface or method name matches all of them, and survives serialization
+        EJBMethodPermission emptyInterface = new EJBMethodPermission("Bean", "update", "", (String[]) null);
+        assertEquals(perm, emptyInterface);
+        assertEquals(emptyInterface, serialize(emptyInterface));
+        assertTrue(emptyInterface.implies(new EJBMethodPermission("Bean", "update,Local,int")));
+        EJBMethodPermission emptyName = new EJBMethodPermission("Bean", "", "Local", new String[] { "int" });
+        assertEquals(new EJBMethodPermission("Bean", ",Local,int"), emptyName);
+        assertEquals(emptyName, serialize(emptyName));
+
+        // an empty method interface followed by a signature still denotes a signature
+        EJBMethodPermission noArgs = new EJBMethodPermission("Bean", "update", "", new String[0]);
+        assertEquals("update,,", noArgs.getActions());
+        assertEquals(new EJBMethodPermission("Bean", "update,,"), noArgs);
+        assertEquals(noArgs, serialize(noArgs));
+        assertFalse(noArgs.implies(new EJBMethodPermission("Bean", "update,Local,int")));
+        assertTrue(noArgs.implies(new EJBMethodPermission("Bean", "update,Local,")));
+
+        // the other forms parse as before
+        assertEquals(",Local", new EJBMethodPermission("Bean", ",Local").getActions());
+        assertEquals(",,int", new EJBMethodPermission("Bean", ",,int").getActions());
+        assertEquals("update,Local,", new EJBMethodPermission("Bean", "update,Local,").getActions());
+        assertEquals(new EJBMethodPermission("Bean", (String) null), new EJBMethodPermission("Bean", ""));
+    }
+
+    private static EJBMethodPermission serialize(EJBMethodPermission perm) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(perm);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        return (EJBMethodPermission) in.readObject();
+    }
+}
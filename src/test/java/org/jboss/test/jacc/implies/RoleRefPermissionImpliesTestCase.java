@@ -0,0 +1,83 @@
+/*
+ * JBoss, Home of Professional Open Source. Copyright 2010, Red Hat Middleware
+ * LLC, and individual contributors as indicated by the @author tags. See the
+ * copyright.txt file in the distribution for a full listing of individual
+ * contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this software; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA, or see the FSF
+ * site: http://www.fsf.org.
+ */
+package org.jboss.test.jacc.implies;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.security.Permission;
+
+import javax.security.jacc.EJBRoleRefPermission;
+import javax.security.jacc.WebRoleRefPermission;
+
+import org.junit.Test;
+
+/**
+ * Unit test the construction, equality and implication of the role reference permissions
+ */
+public class RoleRefPermissionImpliesTestCase {
+
+    @Test
+    public void testNullActions() throws Exception {
+        try {
+            new WebRoleRefPermission("servlet", null);
+            fail("Expected a NullPointerException");
+        } catch (NullPointerException expected) {
+        }
+        try {
+            new EJBRoleRefPermission("Bean", null);
+            fail("Expected a NullPointerException");
+        } catch (NullPointerException expected) {
+        }
+    }
+
+    @Test
+    public void testImpliesAfterSerialization() throws Exception {
+        WebRoleRefPermission web = new WebRoleRefPermission("servlet", "admin");
+        Permission webCopy = roundTrip(web);
+        assertEquals(web, webCopy);
+        assertEquals(web.hashCode(), webCopy.hashCode());
+        assertTrue(webCopy.implies(web));
+        assertFalse(web.implies(new WebRoleRefPermission("servlet", "user")));
+
+        EJBRoleRefPermission ejb = new EJBRoleRefPermission("Bean", "admin");
+        Permission ejbCopy = roundTrip(ejb);
+        assertEquals(ejb, ejbCopy);
+        assertEquals(ejb.hashCode(), ejbCopy.hashCode());
+        assertTrue(ejbCopy.implies(ejb));
+        assertFalse(ejb.implies(new EJBRoleRefPermission("OtherBean", "admin")));
+    }
+
+    private static Permission roundTrip(Permission perm) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(perm);
+        out.close();
+        return (Permission) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+    }
+}
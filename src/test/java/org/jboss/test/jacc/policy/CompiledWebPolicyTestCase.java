@@ -0,0 +1,86 @@
+/*
+ * JBoss, Home of Professional Open Source. Copyright 2010, Red Hat Middleware
+ * LLC, and individual contributors as indicated by the @author tags. See the
+ * copyright.txt file in the distribution for a full listing of individual
+ * contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this software; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA, or see the FSF
+ * site: http://www.fsf.org.
+ */
+package org.jboss.test.jacc.policy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import javax.security.jacc.WebResourcePermission;
+import javax.security.jacc.WebUserDataPermission;
+
+import org.jboss.jacc.CompiledWebPolicy;
+import org.jboss.jacc.WebPolicyCompiler;
+import org.junit.Test;
+
+/**
+ * Unit test the decisions of a {@code CompiledWebPolicy}
+ */
+public class CompiledWebPolicyTestCase {
+
+    @Test
+    public void testDecideResource() throws Exception {
+        WebPolicyCompiler compiler = new WebPolicyCompiler();
+        compiler.addToExcludedPolicy(new WebResourcePermission("/admin/*", (String) null));
+        compiler.addToUncheckedPolicy(new WebResourcePermission("/public/*", "GET"));
+        compiler.addToRole("user", new WebResourcePermission("/*", "GET,POST"));
+        compiler.addToRole("manager", new WebResourcePermission("/public/*", (String) null));
+        compiler.addToRole("manager", new WebResourcePermission("/admin/*", (String) null));
+        CompiledWebPolicy policy = compiler.compile();
+
+        // excluded wins over every other statement
+        assertTrue(policy.decideResource("/admin/console", "GET").isExcluded());
+
+        // unchecked wins over role statements
+        CompiledWebPolicy.Decision decision = policy.decideResource("/public/index.html", "GET");
+        assertFalse(decision.isExcluded());
+        assertTrue(decision.isUnchecked());
+
+        // otherwise the roles granting the request are accumulated
+        decision = policy.decideResource("/public/index.html", "POST");
+        assertFalse(decision.isUnchecked());
+        assertEquals(new HashSet<String>(Arrays.asList("user", "manager")), decision.getRoles());
+        assertEquals(Collections.emptySet(), policy.decideResource("/private", "DELETE").getRoles());
+
+        // the compiled policy is not affected by later changes
+        compiler.removeExcludedPolicy();
+        assertTrue(policy.decideResource("/admin/console", "GET").isExcluded());
+        assertFalse(compiler.compile().decideResource("/admin/console", "GET").isExcluded());
+    }
+
+    @Test
+    public void testDecideUserData() throws Exception {
+        WebPolicyCompiler compiler = new WebPolicyCompiler();
+        compiler.addToUncheckedPolicy(new WebUserDataPermission("/", (String) null));
+        compiler.addToExcludedPolicy(new WebUserDataPermission("/secure/*", "GET"));
+        compiler.addToUncheckedPolicy(new WebUserDataPermission("/secure/*", "POST:CONFIDENTIAL"));
+        CompiledWebPolicy policy = compiler.compile();
+
+        assertTrue(policy.decideUserData("/index.html", "GET", null).isUnchecked());
+        assertTrue(policy.decideUserData("/secure/page", "GET", "CONFIDENTIAL").isExcluded());
+        assertTrue(policy.decideUserData("/secure/page", "POST", "CONFIDENTIAL").isUnchecked());
+    }
+}
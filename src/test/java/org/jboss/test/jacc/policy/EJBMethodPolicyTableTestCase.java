@@ -0,0 +1,134 @@
+/*
+ * JBoss, Home of Professional Open Source. Copyright 2010, Red Hat Middleware
+ * LLC, and individual contributors as indicated by the @author tags. See the
+ * copyright.txt file in the distribution for a full listing of individual
+ * contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this software; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA, or see the FSF
+ * site: http://www.fsf.org.
+ */
+package org.jboss.test.jacc.policy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Method;
+import java.security.PermissionCollection;
+import java.security.Permissions;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import javax.security.jacc.EJBMethodPermission;
+
+import org.jboss.jacc.EJBMethodPolicyTable;
+import org.jboss.jacc.RoleRegistry;
+import org.junit.Test;
+
+/**
+ * Unit test the precompiled decisions of an {@code EJBMethodPolicyTable}
+ */
+public class EJBMethodPolicyTableTestCase {
+
+    public interface Account {
+        void deposit(int amount);
+
+        int getBalance();
+
+        void close();
+
+        void transfer(Account target, int[][] amounts);
+    }
+
+    @Test
+    public void testResolve() throws Exception {
+        Method[] methods = Account.class.getMethods();
+        EJBMethodPolicyTable table = new EJBMethodPolicyTable("account", "Local", methods);
+        assertEquals(methods.length, table.size());
+        try {
+            table.isExcluded(0);
+            fail("Expected IllegalStateException for an unresolved table");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        Permissions excluded = new Permissions();
+        excluded.add(new EJBMethodPermission("account", "close"));
+        Permissions unchecked = new Permissions();
+        unchecked.add(new EJBMethodPermission("account", "getBalance"));
+        unchecked.add(new EJBMethodPermission("account", "close"));
+        Map<String, PermissionCollection> roles = new HashMap<String, PermissionCollection>();
+        roles.put("teller", permissions(new EJBMethodPermission("account", "deposit,Local,int")));
+        roles.put("manager", permissions(new EJBMethodPermission("account", "")));
+        table.resolve(excluded, unchecked, roles);
+
+        BitSet teller = table.getRoleRegistry().toBitSet(Arrays.asList("teller"));
+        for (int i = 0; i < methods.length; i++) {
+            // the permission of each method is the one the container would build for the invocation
+            assertEquals(new EJBMethodPermission("account", "Local", methods[i]), table.getPermission(i));
+            String name = methods[i].getName();
+            if (name.equals("close")) {
+                // excluded wins over unchecked
+                assertTrue(table.isExcluded(i));
+                assertFalse(table.isUnchecked(i));
+                assertFalse(table.isGranted(i, teller));
+            } else if (name.equals("getBalance")) {
+                assertTrue(table.isUnchecked(i));
+                assertEquals(Collections.emptySet(), table.getRoles(i));
+                assertTrue(table.isGranted(i, new BitSet()));
+            } else if (name.equals("deposit")) {
+                assertEquals(new HashSet<String>(Arrays.asList("teller", "manager")), table.getRoles(i));
+                assertTrue(table.isGranted(i, teller));
+            } else {
+                assertEquals(Collections.singleton("manager"), table.getRoles(i));
+                assertFalse(table.isGranted(i, teller));
+                assertFalse(table.isGranted(i, new BitSet()));
+            }
+        }
+    }
+
+    @Test
+    public void testResolveAgain() throws Exception {
+        Method deposit = Account.class.getMethod("deposit", int.class);
+        RoleRegistry registry = new RoleRegistry();
+        EJBMethodPolicyTable table = new EJBMethodPolicyTable("account", null, new Method[] { deposit }, registry);
+        assertEquals(registry, table.getRoleRegistry());
+
+        Map<String, PermissionCollection> roles = new HashMap<String, PermissionCollection>();
+        roles.put("teller", permissions(new EJBMethodPermission("account", "deposit")));
+        table.resolve(null, null, roles);
+        assertTrue(table.isGranted(0, registry.toBitSet(Arrays.asList("teller"))));
+
+        // a new resolution replaces the previous one
+        table.resolve(permissions(new EJBMethodPermission("account", "deposit")), null, roles);
+        assertTrue(table.isExcluded(0));
+        assertFalse(table.isGranted(0, registry.toBitSet(Arrays.asList("teller"))));
+
+        table.resolve(null, null, null);
+        assertFalse(table.isExcluded(0));
+        assertEquals(Collections.emptySet(), table.getRoles(0));
+    }
+
+    private static PermissionCollection permissions(EJBMethodPermission permission) {
+        Permissions permissions = new Permissions();
+        permissions.add(permission);
+        return permissions;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * JBoss, Home of Professional Open Source. Copyright 2010, Red Hat Middleware
+ * LLC, and individual contributors as indicated by the @author tags. See the
+ * copyright.txt file in the distribution for a full listing of individual
+ * contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this software; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA, or see the FSF
+ * site: http://www.fsf.org.
+ */
+package org.jboss.test.jacc.policy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.security.Permission;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.security.jacc.WebResourcePermission;
+
+import org.jboss.jacc.PolicyDecisionCache;
+import org.junit.Test;
+
+/**
+ * Unit test the caching, invalidation and bounds of {@code PolicyDecisionCache}
+ */
+public class PolicyDecisionCacheTestCase {
+
+    /** Grants GET requests, counting the evaluations */
+    private static class CountingEvaluator implements PolicyDecisionCache.Evaluator {
+        int evaluations;
+
+        public boolean implies(String contextID, PolicyDecisionCache.RoleSet roles, Permission permission) {
+            this.evaluations++;
+            return permission.getActions().equals("GET");
+        }
+    }
+
+    @Test
+    public void testRoleSetIdentity() throws Exception {
+        PolicyDecisionCache cache = PolicyDecisionCache.newInstance();
+        PolicyDecisionCache.RoleSet roles = cache.roleSet(Arrays.asList("manager", "user"));
+        assertSame(roles, cache.roleSet(Arrays.asList("user", "manager", "user")));
+        assertEquals(roles.getRoles(), cache.roleSet(Arrays.asList("user", "manager")).getRoles());
+        assertFalse(roles.equals(cache.roleSet(Collections.singleton("user"))));
+    }
+
+    @Test
+    public void testSharedDecisions() throws Exception {
+        PolicyDecisionCache cache = PolicyDecisionCache.newInstance();
+        CountingEvaluator evaluator = new CountingEvaluator();
+        PolicyDecisionCache.RoleSet roles = cache.roleSet(Collections.singleton("user"));
+
+        assertTrue(cache.implies("ctx", roles, new WebResourcePermission("/a", "GET"), evaluator));
+        assertTrue(cache.implies("ctx", cache.roleSet(Collections.singleton("user")),
+                new WebResourcePermission("/a", "GET"), evaluator));
+        assertFalse(cache.implies("ctx", roles, new WebResourcePermission("/a", "POST"), evaluator));
+        assertEquals(2, evaluator.evaluations);
+
+        // decisions are not shared across contexts or role sets
+        cache.implies("other", roles, new WebResourcePermission("/a", "GET"), evaluator);
+        cache.implies("ctx", cache.roleSet(Collections.singleton("admin")), new WebResourcePermission("/a", "GET"),
+                evaluator);
+        assertEquals(4, evaluator.evaluations);
+    }
+
+    @Test
+    public void testInvalidateDuringEvaluation() throws Exception {
+        final PolicyDecisionCache cache = PolicyDecisionCache.newInstance();
+        final PolicyDecisionCache.RoleSet roles = cache.roleSet(Collections.singleton("user"));
+        final Permission permission = new WebResourcePermission("/a", "GET");
+        CountingEvaluator committing = new CountingEvaluator() {
+            @Override
+            public boolean implies(String contextID, PolicyDecisionCache.RoleSet roles, Permission permission) {
+                // the policy of the context is committed while the decision is being evaluated
+                cache.invalidate(contextID);
+                return super.implies(contextID, roles, permission);
+            }
+        };
+        cache.implies("ctx", roles, permission, committing);
+
+        // the decision evaluated against the previous policy was not cached
+        CountingEvaluator evaluator = new CountingEvaluator();
+        cache.implies("ctx", roles, permission, evaluator);
+        cache.implies("ctx", roles, permission, evaluator);
+        assertEquals(1, evaluator.evaluations);
+
+        cache.invalidate("ctx");
+        cache.implies("ctx", roles, permission, evaluator);
+        assertEquals(2, evaluator.evaluations);
+    }
+
+    @Test
+    public void testBounds() throws Exception {
+        PolicyDecisionCache cache = PolicyDecisionCache.newInstance(4, 16);
+        CountingEvaluator evaluator = new CountingEvaluator();
+        PolicyDecisionCache.RoleSet roles = cache.roleSet(Collections.singleton("user"));
+        Permission hot = new WebResourcePermission("/hot", "GET");
+        cache.implies("ctx", roles, hot, evaluator);
+        for (int i = 0; i < 1000; i++) {
+            // the hot decision keeps being used while cold decisions and contexts come and go
+            assertTrue(cache.implies("ctx", roles, hot, evaluator));
+            cache.implies("ctx", roles, new WebResourcePermission("/cold/" + i, "GET"), evaluator);
+            cache.implies("ctx" + i, roles, hot, evaluator);
+        }
+        assertEquals(1 + 2 * 1000, evaluator.evaluations);
+    }
+}
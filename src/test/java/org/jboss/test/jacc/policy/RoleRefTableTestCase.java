@@ -0,0 +1,64 @@
+/*
+ * JBoss, Home of Professional Open Source. Copyright 2010, Red Hat Middleware
+ * LLC, and individual contributors as indicated by the @author tags. See the
+ * copyright.txt file in the distribution for a full listing of individual
+ * contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this software; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA, or see the FSF
+ * site: http://www.fsf.org.
+ */
+package org.jboss.test.jacc.policy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.security.PermissionCollection;
+import java.security.Permissions;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.security.jacc.EJBRoleRefPermission;
+import javax.security.jacc.WebRoleRefPermission;
+
+import org.jboss.jacc.RoleRefTable;
+import org.junit.Test;
+
+/**
+ * Unit test the role reference lookups of a {@code RoleRefTable}
+ */
+public class RoleRefTableTestCase {
+
+    @Test
+    public void testGetRoles() throws Exception {
+        Map<String, PermissionCollection> roles = new LinkedHashMap<String, PermissionCollection>();
+        roles.put("administrator", new Permissions());
+        roles.get("administrator").add(new WebRoleRefPermission("servlet", "admin"));
+        roles.get("administrator").add(new EJBRoleRefPermission("bean", "admin"));
+        roles.put("operator", new Permissions());
+        roles.get("operator").add(new WebRoleRefPermission("servlet", "admin"));
+        roles.get("operator").add(new WebRoleRefPermission("other", "user"));
+
+        RoleRefTable servlet = RoleRefTable.forServlet("servlet", roles);
+        assertEquals(new HashSet<String>(Arrays.asList("administrator", "operator")), servlet.getRoles("admin"));
+        // references of other components are not taken into account
+        assertTrue(servlet.getRoles("user").isEmpty());
+
+        RoleRefTable bean = RoleRefTable.forBean("bean", roles);
+        assertEquals(new HashSet<String>(Arrays.asList("administrator")), bean.getRoles("admin"));
+        assertTrue(RoleRefTable.forBean("servlet", roles).getRoles("admin").isEmpty());
+    }
+}
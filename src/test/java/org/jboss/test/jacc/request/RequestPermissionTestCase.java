@@ -0,0 +1,99 @@
+/*
+ * JBoss, Home of Professional Open Source. Copyright 2010, Red Hat Middleware
+ * LLC, and individual contributors as indicated by the @author tags. See the
+ * copyright.txt file in the distribution for a full listing of individual
+ * contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this software; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA, or see the FSF
+ * site: http://www.fsf.org.
+ */
+package org.jboss.test.jacc.request;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.security.jacc.WebResourcePermission;
+import javax.security.jacc.WebUserDataPermission;
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Test;
+
+/**
+ * Unit test the web permissions constructed from an {@code HttpServletRequest}
+ */
+public class RequestPermissionTestCase {
+
+    @Test
+    public void testWebResourcePermission() throws Exception {
+        assertPermission("/a/b", "GET", new WebResourcePermission(request("/app/a/b", "/app", "GET", false)));
+        // the context root is represented by the empty string
+        assertPermission("", "POST", new WebResourcePermission(request("/app/", "/app", "POST", false)));
+        assertPermission("", "POST", new WebResourcePermission(request("/", "", "POST", false)));
+        // colons are escaped
+        assertPermission("/a%3Ab%3A", "GET", new WebResourcePermission(request("/ctx/a:b:", "/ctx", "GET", false)));
+        // extension methods are kept as is
+        assertPermission("/x.jsp", "PATCH", new WebResourcePermission(request("/x.jsp", null, "PATCH", false)));
+        assertPermission("", null, new WebResourcePermission(request(null, "/app", null, false)));
+    }
+
+    @Test
+    public void testWebUserDataPermission() throws Exception {
+        assertPermission("/a/b", "GET", new WebUserDataPermission(request("/app/a/b", "/app", "GET", false)));
+        assertPermission("/a/b", "GET:CONFIDENTIAL", new WebUserDataPermission(request("/app/a/b", "/app", "GET",
+            true)));
+        assertPermission("/a%3Ab", "PUT:CONFIDENTIAL", new WebUserDataPermission(request("/a:b", "", "PUT", true)));
+    }
+
+    /**
+     * Checks a permission built from a request is the one built from the corresponding name and actions.
+     */
+    private static void assertPermission(String name, String actions, WebResourcePermission permission) {
+        WebResourcePermission expected = new WebResourcePermission(name, actions);
+        assertEquals(name, permission.getName());
+        assertEquals(expected.getActions(), permission.getActions());
+        assertEquals(expected, permission);
+        assertEquals(expected.hashCode(), permission.hashCode());
+    }
+
+    private static void assertPermission(String name, String actions, WebUserDataPermission permission) {
+        WebUserDataPermission expected = new WebUserDataPermission(name, actions);
+        assertEquals(name, permission.getName());
+        assertEquals(expected.getActions(), permission.getActions());
+        assertEquals(expected, permission);
+        assertEquals(expected.hashCode(), permission.hashCode());
+    }
+
+    private static HttpServletRequest request(final String requestURI, final String contextPath, final String method,
+        final boolean secure) {
+        InvocationHandler handler = new InvocationHandler() {
+            public Object invoke(Object proxy, Method m, Object[] args) {
+                if (m.getName().equals("getRequestURI"))
+                    return requestURI;
+                if (m.getName().equals("getContextPath"))
+                    return contextPath;
+                if (m.getName().equals("getMethod"))
+                    return method;
+                if (m.getName().equals("isSecure"))
+                    return secure;
+                throw new UnsupportedOperationException(m.getName());
+            }
+        };
+        return (HttpServletRequest) Proxy.newProxyInstance(RequestPermissionTestCase.class.getClassLoader(),
+            new Class<?>[] { HttpServletRequest.class }, handler);
+    }
+}
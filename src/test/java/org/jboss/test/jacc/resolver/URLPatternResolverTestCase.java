@@ -0,0 +1,55 @@
+/*
+ * JBoss, Home of Professional Open Source. Copyright 2010, Red Hat Middleware
+ * LLC, and individual contributors as indicated by the @author tags. See the
+ * copyright.txt file in the distribution for a full listing of individual
+ * contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this software; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA, or see the FSF
+ * site: http://www.fsf.org.
+ */
+package org.jboss.test.jacc.resolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.jboss.jacc.URLPatternResolver;
+import org.junit.Test;
+
+/**
+ * Unit test the most specific match resolution of {@code URLPatternResolver}
+ */
+public class URLPatternResolverTestCase {
+
+    @Test
+    public void testResolve() throws Exception {
+        URLPatternResolver resolver = URLPatternResolver.newInstance("/", "/*", "/a/*", "/a/b/*", "/a/b/c", "*.jsp",
+                "");
+
+        assertEquals("/a/b/c", resolver.resolve("/a/b/c"));
+        assertEquals("/a/b/*", resolver.resolve("/a/b/d"));
+        assertEquals("/a/b/*", resolver.resolve("/a/b"));
+        assertEquals("/a/*", resolver.resolve("/a/bc"));
+        assertEquals("/*", resolver.resolve("/x.jsp"));
+        assertEquals("", resolver.resolve(""));
+
+        resolver = URLPatternResolver.newInstance("/", "/a/*", "*.jsp");
+
+        assertEquals("*.jsp", resolver.resolve("/x/y.jsp"));
+        assertEquals("/a/*", resolver.resolve("/a/y.jsp"));
+        assertEquals("/", resolver.resolve("/x/y"));
+
+        assertNull(URLPatternResolver.newInstance("/a/*").resolve("/b"));
+    }
+}